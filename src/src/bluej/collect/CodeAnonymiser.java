@@ -38,7 +38,7 @@ import threadchecker.OnThread;
 import threadchecker.Tag;
 
 //package-visible
-@OnThread(Tag.FXPlatform)
+@OnThread(Tag.Any)
 class CodeAnonymiser
 {
     public static String anonymise(String sourceCode)
@@ -190,6 +190,7 @@ public class DataCollector
         {
             uuid = OPT_OUT;
             recordingThisSession = false;
+            DataSubmitter.discardPending();
         }
         Config.putPropString(PROPERTY_UUID, uuid);
     }
@@ -61,6 +61,7 @@ import bluej.pkgmgr.Package;
 import bluej.pkgmgr.Project;
 import bluej.pkgmgr.target.ClassTarget;
 import bluej.utility.Utility;
+import difflib.Chunk;
 import difflib.Delta;
 import difflib.DiffUtils;
 import difflib.Patch;
@@ -440,7 +441,7 @@ public class DataCollectorImpl
         private final File generatedFrom;
         // The reason for the Stride edit being generated (null if unknown or N/A)
         private final StrideEditReason strideEditReason;
-        // These get set after constructor:
+        // These get set after constructor (anonSource on the worker thread, when the event is sent):
         private FileKey fileKey;
         private List<String> anonSource;
         // Keep track of whether we actually sent the edit or not:
@@ -462,11 +463,11 @@ public class DataCollectorImpl
     {
         final Project proj = pkg.getProject();
         final ProjectDetails projDetails = new ProjectDetails(proj);
-        // Generate FileKeys and anonymous source for all the files:
+        // Generate FileKeys for all the files.  The anonymisation and diffing is left
+        // until the event is sent, so that it happens on the worker thread:
         for (EditedFileInfo editedFile : editedFiles)
         {
             editedFile.fileKey = new FileKey(projDetails, CollectUtility.toPath(projDetails, editedFile.path));
-            editedFile.anonSource = Arrays.asList(Utility.splitLines(CodeAnonymiser.anonymise(editedFile.source)));
         }
                 
         submitEvent(proj, pkg, EventName.EDIT, new Event() {
@@ -487,13 +488,14 @@ public class DataCollectorImpl
                 MultipartEntity mpe = new MultipartEntity();
                 for (EditedFileInfo editedFile : editedFiles)
                 {
+                    editedFile.anonSource = Arrays.asList(Utility.splitLines(CodeAnonymiser.anonymise(editedFile.source)));
 
                     List<String> previousDoc = fileVersions.get(editedFile.fileKey);
                     if (previousDoc == null)
                         previousDoc = new ArrayList<String>(); // Diff against empty file
 
 
-                    Patch patch = DiffUtils.diff(previousDoc, editedFile.anonSource);
+                    Patch patch = diff(previousDoc, editedFile.anonSource);
 
                     if (patch.getDeltas().isEmpty() || (isOneLineDiff(patch) && !editedFile.includeOneLineEdits))
                     {
@@ -535,6 +537,43 @@ public class DataCollectorImpl
         });
     }
     
+    /**
+     * Works out the differences between two versions of a file.  Edits are
+     * usually confined to a small part of the file, so the lines which are the
+     * same at the start and end are skipped, and only the region between them
+     * is given to DiffUtils.  The positions in the returned patch are relative
+     * to the whole file, as if DiffUtils had been given the complete lists.
+     */
+    @OnThread(Tag.Any)
+    // protected for testing purposes
+    protected static Patch diff(List<String> original, List<String> revised)
+    {
+        int maxCommon = Math.min(original.size(), revised.size());
+        int prefix = 0;
+        while (prefix < maxCommon && original.get(prefix).equals(revised.get(prefix)))
+        {
+            prefix += 1;
+        }
+        int suffix = 0;
+        while (suffix < maxCommon - prefix
+                && original.get(original.size() - 1 - suffix).equals(revised.get(revised.size() - 1 - suffix)))
+        {
+            suffix += 1;
+        }
+        
+        Patch patch = DiffUtils.diff(original.subList(prefix, original.size() - suffix),
+                revised.subList(prefix, revised.size() - suffix));
+        if (prefix > 0)
+        {
+            for (Delta delta : patch.getDeltas())
+            {
+                delta.setOriginal(new Chunk(delta.getOriginal().getPosition() + prefix, delta.getOriginal().getLines()));
+                delta.setRevised(new Chunk(delta.getRevised().getPosition() + prefix, delta.getRevised().getLines()));
+            }
+        }
+        return patch;
+    }
+    
     @SuppressWarnings("unchecked")
     @OnThread(Tag.Any)
     // protected for testing purposes
@@ -808,7 +847,7 @@ public class DataCollectorImpl
 
                 MultipartEntity mpe = new MultipartEntity();
 
-                Patch patch = DiffUtils.diff(previousDoc, anonJava);
+                Patch patch = diff(previousDoc, anonJava);
                 String diff = makeDiff(patch);
                 mpe.addPart("source_histories[][content]", CollectUtility.toBody(diff));
 
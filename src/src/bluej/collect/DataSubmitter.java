@@ -22,11 +22,15 @@
 package bluej.collect;
 
 import javax.swing.*;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import javafx.application.Platform;
@@ -36,17 +40,7 @@ import bluej.Config;
 import bluej.extensions.event.ApplicationEvent;
 import bluej.extmgr.ExtensionsManager;
 import bluej.pkgmgr.Project;
-import org.apache.http.Header;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.mime.MultipartEntity;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.params.BasicHttpParams;
-import org.apache.http.params.HttpConnectionParams;
-import org.apache.http.params.HttpParams;
-import org.apache.http.util.EntityUtils;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 
@@ -56,6 +50,9 @@ import threadchecker.Tag;
  * The class has nothing to do with collecting the data, and deliberately
  * does not depend on any other BlueJ classes.  Package-visible.
  * 
+ * Events are encoded and written to an EventSpool before being sent, so that
+ * events which can't be sent in this session are sent in the next one.
+ * 
  * @author Davin McCall
  */
 class DataSubmitter
@@ -64,9 +61,33 @@ class DataSubmitter
         //For testing:
         //"http://localhost:3000/master_events";
 
+    /** The name of the spool directory, within the user config directory */
+    private static final String SPOOL_DIR_NAME = "blackbox-queue";
+    
+    /** How long to wait before sending again after the server couldn't be reached */
+    private static final long FIRST_RETRY_MILLIS = 30 * 1000;
+    /** The longest we wait between attempts; the wait doubles after each failure, up to this */
+    private static final long MAX_RETRY_MILLIS = 10 * 60 * 1000;
     
+    /**
+     * Set once the server has rejected an event; we don't send anything more in this
+     * session (but events are still spooled, to be sent in the next session).
+     */
     private static AtomicBoolean givenUp = new AtomicBoolean(false);
     
+    /**
+     * When we may next try to send, and how long to wait after the next failure.
+     * Only accessed on the event-sending thread.
+     */
+    private static long nextAttemptTime = 0;
+    private static long retryMillis = FIRST_RETRY_MILLIS;
+    
+    /**
+     * The timer used to try sending again after a failure, even if no more events
+     * are submitted.  Created when first needed; only accessed while synchronized on queue.
+     */
+    private static Timer retryTimer;
+    
     /**
      * isRunning is only touched while synchonized on queue
      */
@@ -79,10 +100,17 @@ class DataSubmitter
     /**
      * The versions of the files as we have last sent them to the server.
      * 
-     * Should only be accessed by the postData method, which is running on
+     * Should only be accessed by the encodeEvent method, which is running on
      * the event-sending thread
      */
     private static Map<FileKey, List<String> > fileVersions = new HashMap<FileKey, List<String> >();
+
+    /**
+     * The spool and the transport; created when first needed.  Only accessed
+     * while synchronized on the DataSubmitter class.
+     */
+    private static EventSpool spool;
+    private static EventTransport transport;
     
     /**
      * Submit data to be posted to the server. The data is added to a queue which is processed by
@@ -92,50 +120,93 @@ class DataSubmitter
      */
     static void submitEvent(Event evt)
     {
-        //This thread only reads the boolean, and is an optimisation:
-        if (givenUp.get())
-            return;
-        
         synchronized (queue) {
             queue.add(evt);
-            
-            if (! isRunning) {
-                new Thread() {
-                    @OnThread(value = Tag.Worker, ignoreParent = true)
-                    public void run()
-                    {
-                        processQueue();
-                    }
-                }.start();
-                isRunning = true;
+            startProcessing();
+        }
+    }
+    
+    /**
+     * Start the thread which processes the queue, if it is not already running.
+     * Must be called while synchronized on queue.
+     */
+    private static void startProcessing()
+    {
+        if (! isRunning) {
+            new Thread() {
+                @OnThread(value = Tag.Worker, ignoreParent = true)
+                public void run()
+                {
+                    processQueue();
+                }
+            }.start();
+            isRunning = true;
+        }
+    }
+    
+    /**
+     * Arrange for the queue to be processed (and so the spool to be sent) after the
+     * given delay.
+     */
+    private static void scheduleRetry(long delayMillis)
+    {
+        synchronized (queue) {
+            if (retryTimer == null) {
+                retryTimer = new Timer("Data collection retry", true);
             }
+            retryTimer.schedule(new TimerTask() {
+                @Override
+                @OnThread(value = Tag.Worker, ignoreParent = true)
+                public void run()
+                {
+                    synchronized (queue) {
+                        startProcessing();
+                    }
+                }
+            }, delayMillis);
         }
     }
     
     /**
      * Process the queue of items to be posted to the server.
+     * 
+     * Everything in the queue is encoded and spooled in one go, and then all
+     * spooled events are sent back-to-back over the same connection.  If the
+     * server can't be reached, sending is tried again later, waiting longer after
+     * each failure; the events stay spooled meanwhile.
      */
     @OnThread(Tag.Worker)
     private static void processQueue()
     {
         while (true) {
-            Event evt;
+            List<Event> batch;
             synchronized (queue) {
-                if (queue.isEmpty()) {
-                    isRunning = false;
-                    queue.notifyAll(); // in case anyone is waiting for us to finish
-                    return;
-                }
-                evt = queue.remove(0);
+                batch = new ArrayList<>(queue);
+                queue.clear();
             }
             
-
-            if (!givenUp.get())
+            EventSpool pending = getSpool();
+            for (Event evt : batch)
             {
-                givenUp.set(!postData(evt));
-                // If we just gave up on this event:
-                if (givenUp.get())
+                encodeEvent(evt, pending);
+            }
+            
+            if (!givenUp.get() && System.currentTimeMillis() >= nextAttemptTime)
+            {
+                EventSpool.SendResult result = pending.sendAll(getTransport());
+                if (result == EventSpool.SendResult.SENT)
+                {
+                    retryMillis = FIRST_RETRY_MILLIS;
+                }
+                else if (result == EventSpool.SendResult.UNREACHABLE)
+                {
+                    nextAttemptTime = System.currentTimeMillis() + retryMillis;
+                    scheduleRetry(retryMillis);
+                    retryMillis = Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+                }
+                else
                 {
+                    givenUp.set(true);
                     SwingUtilities.invokeLater(() -> {
                         ExtensionsManager.getInstance().delegateEvent(new ApplicationEvent(ApplicationEvent.DATA_SUBMISSION_FAILED_EVENT));
                         Platform.runLater(() ->
@@ -152,83 +223,78 @@ class DataSubmitter
                     });
                 }
             }
+            
+            synchronized (queue) {
+                if (queue.isEmpty()) {
+                    isRunning = false;
+                    queue.notifyAll(); // in case anyone is waiting for us to finish
+                    return;
+                }
+            }
         }
     }
     
     /**
-     * Actually post the data to the server.
+     * Form the data for an event and add it to the spool.
      * 
-     * Returns false if there was an error.
+     * Once the event is spooled it will be delivered (in this session or a later one),
+     * so the file versions are updated straight away; later events are formed
+     * relative to this one.
      */
     @OnThread(Tag.Worker)
-    private static boolean postData(Event evt)
-    {   
-        HttpParams params = new BasicHttpParams();
-        HttpConnectionParams.setConnectionTimeout(params, Boot.isTrialRecording() ? 30000 : 10000);
-        HttpConnectionParams.setSoTimeout(params, Boot.isTrialRecording() ? 30000 : 10000);
-        HttpClient client = new DefaultHttpClient(params);
+    private static void encodeEvent(Event evt, EventSpool spool)
+    {
+        MultipartEntity mpe = evt.makeData(sequenceNum, fileVersions);
+        if (mpe == null)
+            return; // nothing to send, no error
         
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
         try {
-            HttpPost post = new HttpPost(submitUrl);
-
-            
-            /*
-            if (errFilePath != null) {
-                mpe.addPart("filepath", new StringBody(errFilePath, utf8));
-            }
-            if (errMsg != null) {
-                mpe.addPart("errormsg", new StringBody(errMsg, utf8));
-            }
-            if (errline != 0) {
-                mpe.addPart("errorline", new StringBody("" + errline, utf8));
-            }
-            
-            int i = 0;
-            for (SourceContent changedFile : changedFiles) {
-                mpe.addPart("sourcefileName" + i, new StringBody(changedFile.getFilePath(), utf8));
-                mpe.addPart("sourcefileContent" + i, new ByteArrayBody(changedFile.getFileContent(),
-                        changedFile.getFilePath()));
-            }
-            */
-            MultipartEntity mpe = evt.makeData(sequenceNum, fileVersions);
-            if (mpe == null)
-                return true; // nothing to send, no error
-            //Only increment sequence number if we actually send data:
-            sequenceNum += 1;
-            post.setEntity(mpe);
-            HttpResponse response = client.execute(post);
-            
-            for (Header h : response.getAllHeaders())
-            {
-                if ("X-Status".equals(h.getName()) && !"Created".equals(h.getValue()))
-                {
-                    // Temporary printing:
-                    System.err.println("Problem response: " + mpe.toString() + " " + response.toString());
-                    return false;
-                }
-            }
-            
-            if (response.getStatusLine().getStatusCode() != 200)
-            {
-                System.err.println("Problem code: " + response.getStatusLine().getStatusCode());
-                return false;
-            }
-            
-            evt.success(fileVersions);
-                
-            EntityUtils.consume(response.getEntity());
-        }
-        catch (ClientProtocolException cpe) {
-            return false;
+            mpe.writeTo(body);
         }
         catch (IOException ioe) {
-            //For now:
+            // Can't happen, we're writing to memory:
             ioe.printStackTrace();
-            
-            return false;
+            return;
         }
         
-        return true;
+        //Only increment sequence number if we actually send data:
+        sequenceNum += 1;
+        spool.add(body.toByteArray(), mpe.getContentType().getValue());
+        evt.success(fileVersions);
+    }
+    
+    private static synchronized EventSpool getSpool()
+    {
+        if (spool == null)
+            spool = new EventSpool(Config.getUserConfigFile(SPOOL_DIR_NAME));
+        return spool;
+    }
+    
+    private static synchronized EventTransport getTransport()
+    {
+        if (transport == null)
+            transport = new HttpEventTransport(submitUrl, Boot.isTrialRecording() ? 30000 : 10000);
+        return transport;
+    }
+    
+    /**
+     * Discard any events which have not yet been sent, including those
+     * left over from previous sessions.  Used when the user opts out.
+     */
+    public static void discardPending()
+    {
+        synchronized (queue) {
+            queue.clear();
+        }
+        // The spool may be busy sending, so don't wait for it on this thread:
+        new Thread() {
+            @OnThread(value = Tag.Worker, ignoreParent = true)
+            public void run()
+            {
+                getSpool().clear();
+            }
+        }.start();
     }
     
     /**
@@ -0,0 +1,285 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2016  Michael Kolling and John Rosenberg 
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.collect;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import bluej.utility.Debug;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A queue of encoded events which have not yet been delivered to the server.
+ * 
+ * <p>Each event is written to its own file in the spool directory before it is sent,
+ * and the file is deleted once the server has accepted it.  Events which could not be
+ * sent (e.g. because the network was unavailable) are therefore still there next time
+ * BlueJ starts, and are sent, in their original order, before any new events.
+ * 
+ * <p>Only one process may use a spool directory at a time.  If the directory is already
+ * in use (or can't be used at all), events are only queued in memory.
+ */
+class EventSpool
+{
+    private static final String LOCK_FILE = "lock";
+    private static final String EXTENSION = ".event";
+    /** Events which have been waiting longer than this are discarded rather than sent */
+    private static final long MAX_AGE_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+    /** The spool directory, or null if we are only queueing in memory */
+    private File dir;
+    /** The lock on the spool directory; must be kept referenced so it isn't released */
+    private FileLock lock;
+    private final LinkedList<Entry> pending = new LinkedList<>();
+    private long nextId;
+
+    /**
+     * The outcome of trying to send all queued events.
+     */
+    enum SendResult
+    {
+        /** All events were sent */
+        SENT,
+        /** The server could not be reached; the unsent events are still queued */
+        UNREACHABLE,
+        /** The server rejected an event; it was discarded, but any later events are still queued */
+        REJECTED
+    }
+
+    /**
+     * An event waiting to be sent.
+     */
+    private static class Entry
+    {
+        /** The file holding the event, or null if the event is only held in memory */
+        private final File file;
+        /** The content, or null if not yet read back from the file */
+        private String contentType;
+        private byte[] body;
+
+        private Entry(File file, String contentType, byte[] body)
+        {
+            this.file = file;
+            this.contentType = contentType;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Open the spool in the given directory, creating the directory if necessary.
+     * Any events left from a previous session are queued for sending.
+     */
+    EventSpool(File dir)
+    {
+        try {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Could not create directory " + dir);
+            }
+            FileChannel channel = new RandomAccessFile(new File(dir, LOCK_FILE), "rw").getChannel();
+            try {
+                lock = channel.tryLock();
+            }
+            catch (OverlappingFileLockException ofle) {
+                // Already locked elsewhere in this VM
+            }
+            if (lock == null) {
+                // Another process (e.g. another BlueJ or Greenfoot) is using the spool:
+                channel.close();
+                return;
+            }
+        }
+        catch (IOException ioe) {
+            Debug.reportError("Could not open data collection queue in " + dir, ioe);
+            return;
+        }
+        this.dir = dir;
+
+        File[] files = dir.listFiles((d, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            return;
+        }
+        // The names are zero-padded numbers, so name order is the order they were written:
+        Arrays.sort(files);
+        long oldest = System.currentTimeMillis() - MAX_AGE_MILLIS;
+        for (File f : files)
+        {
+            if (f.lastModified() < oldest) {
+                f.delete();
+                continue;
+            }
+            pending.add(new Entry(f, null, null));
+            nextId = Math.max(nextId, parseId(f.getName()) + 1);
+        }
+    }
+
+    private static long parseId(String fileName)
+    {
+        try {
+            return Long.parseLong(fileName.substring(0, fileName.length() - EXTENSION.length()));
+        }
+        catch (NumberFormatException nfe) {
+            return -1;
+        }
+    }
+
+    /**
+     * Add an event to the end of the queue.  The event is written to disk (if we have
+     * a spool directory) before this method returns.
+     */
+    @OnThread(Tag.Worker)
+    public synchronized void add(byte[] body, String contentType)
+    {
+        File file = null;
+        if (dir != null) {
+            file = new File(dir, String.format("%019d", nextId++) + EXTENSION);
+            File temp = new File(dir, file.getName() + ".tmp");
+            try (FileOutputStream fos = new FileOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(fos)) {
+                out.writeUTF(contentType);
+                out.writeInt(body.length);
+                out.write(body);
+                out.flush();
+                fos.getFD().sync();
+            }
+            catch (IOException ioe) {
+                Debug.reportError("Could not write data collection event", ioe);
+                temp.delete();
+                file = null;
+            }
+            // Renaming makes sure we never read back a partly-written event:
+            if (file != null && !temp.renameTo(file)) {
+                temp.delete();
+                file = null;
+            }
+        }
+        // Keep the content in memory too, so we don't have to read it back to send it:
+        pending.add(new Entry(file, contentType, body));
+    }
+
+    /**
+     * Send all queued events, in order, using the given transport.  Each event is
+     * removed from the queue once it has been sent.  Sending stops at the first
+     * event which can't be delivered; it stays queued, unless the server rejected it
+     * (in which case sending it again would not help).
+     */
+    @OnThread(Tag.Worker)
+    public synchronized SendResult sendAll(EventTransport transport)
+    {
+        while (!pending.isEmpty())
+        {
+            Entry entry = pending.getFirst();
+            if (entry.body == null) {
+                try {
+                    read(entry);
+                }
+                catch (IOException ioe) {
+                    // A damaged file will never be readable, so throw it away:
+                    Debug.reportError("Could not read data collection event " + entry.file, ioe);
+                    pending.removeFirst();
+                    entry.file.delete();
+                    continue;
+                }
+            }
+
+            boolean accepted;
+            try {
+                accepted = transport.send(entry.body, entry.contentType);
+            }
+            catch (IOException ioe) {
+                // Most likely we are offline; we'll try again later:
+                return SendResult.UNREACHABLE;
+            }
+
+            pending.removeFirst();
+            if (entry.file != null) {
+                entry.file.delete();
+            }
+            if (!accepted) {
+                return SendResult.REJECTED;
+            }
+        }
+        return SendResult.SENT;
+    }
+
+    private static void read(Entry entry) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(entry.file))) {
+            String contentType = in.readUTF();
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            entry.contentType = contentType;
+            entry.body = body;
+        }
+    }
+
+    /**
+     * Get the number of events waiting to be sent.
+     */
+    public synchronized int size()
+    {
+        return pending.size();
+    }
+
+    /**
+     * Discard all queued events, including those on disk.
+     */
+    public synchronized void clear()
+    {
+        for (Entry entry : pending)
+        {
+            if (entry.file != null) {
+                entry.file.delete();
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * Stop using the spool directory, so that another spool can use it.  Events which
+     * are still queued remain on disk; any added after this are only held in memory.
+     */
+    public synchronized void close()
+    {
+        if (lock == null) {
+            return;
+        }
+        try {
+            lock.channel().close();
+        }
+        catch (IOException ioe) {
+            Debug.reportError("Error closing data collection queue", ioe);
+        }
+        lock = null;
+        dir = null;
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2016  Michael Kolling and John Rosenberg 
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.collect;
+
+import java.io.IOException;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * The means by which recorded events are delivered to the server.  The
+ * normal implementation is HttpEventTransport; tests can substitute their own.
+ */
+interface EventTransport
+{
+    /**
+     * Send a single event to the server.
+     * 
+     * @param body The encoded event, as produced by writing out its MultipartEntity
+     * @param contentType The content type of the encoded event (including the multipart boundary)
+     * @return true if the server accepted the event, false if it rejected it
+     * @throws IOException if the event could not be delivered, e.g. due to a network problem
+     */
+    @OnThread(Tag.Worker)
+    boolean send(byte[] body, String contentType) throws IOException;
+}
@@ -0,0 +1,106 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2016  Michael Kolling and John Rosenberg 
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.collect;
+
+import java.io.IOException;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.util.EntityUtils;
+
+import bluej.utility.Debug;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Sends events to the server as HTTP POST requests.
+ * 
+ * A single client is kept for the whole session, so that successive events
+ * re-use a kept-alive connection rather than each opening a new one.
+ */
+class HttpEventTransport implements EventTransport
+{
+    private static final int MAX_CONNECTIONS = 2;
+
+    private final String url;
+    private final HttpClient client;
+
+    /**
+     * Create a transport which posts events to the given URL.
+     * 
+     * @param timeoutMillis The connection and socket timeout, in milliseconds
+     */
+    HttpEventTransport(String url, int timeoutMillis)
+    {
+        this.url = url;
+
+        HttpParams params = new BasicHttpParams();
+        HttpConnectionParams.setConnectionTimeout(params, timeoutMillis);
+        HttpConnectionParams.setSoTimeout(params, timeoutMillis);
+        ThreadSafeClientConnManager connManager = new ThreadSafeClientConnManager();
+        connManager.setMaxTotal(MAX_CONNECTIONS);
+        connManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+        client = new DefaultHttpClient(connManager, params);
+    }
+
+    @Override
+    @OnThread(Tag.Worker)
+    public boolean send(byte[] body, String contentType) throws IOException
+    {
+        HttpPost post = new HttpPost(url);
+        ByteArrayEntity entity = new ByteArrayEntity(body);
+        entity.setContentType(contentType);
+        post.setEntity(entity);
+        HttpResponse response = client.execute(post);
+
+        try {
+            for (Header h : response.getAllHeaders())
+            {
+                if ("X-Status".equals(h.getName()) && !"Created".equals(h.getValue()))
+                {
+                    Debug.message("Data collection event rejected: " + h.getValue());
+                    return false;
+                }
+            }
+
+            if (response.getStatusLine().getStatusCode() != 200)
+            {
+                Debug.message("Data collection event rejected: " + response.getStatusLine());
+                return false;
+            }
+
+            return true;
+        }
+        finally {
+            // Must always consume the response, or the connection can't be re-used:
+            EntityUtils.consume(response.getEntity());
+        }
+    }
+}
@@ -26,7 +26,7 @@ import java.io.File;
 /**
  * Observer interface for classes that are interested in compilation.
  *
- * All events are generated on the compiler thread.
+ * All events are generated on a compiler thread.
  *
  * @author  Michael Cahill
  */
@@ -42,6 +42,15 @@ public interface CompileObserver
      */
     void compilerMessage(Diagnostic diagnostic, CompileType type);
     
+    /**
+     * Timing information for a compilation job, reported just before the job finishes.
+     * 
+     * @param queueWaitMillis  The time the job spent waiting in the queue, in milliseconds
+     * @param compileMillis    The time taken by the compiler itself, in milliseconds
+     */
+    default void compileTimes(CompileInputFile[] sources, CompileType type, int compilationSequence,
+            long queueWaitMillis, long compileMillis) { }
+    
     /**
      * A Compilation job finished.
      */
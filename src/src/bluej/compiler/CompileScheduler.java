@@ -0,0 +1,159 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 1999-2009,2016  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+import bluej.Config;
+
+/**
+ * The compile scheduler. Jobs are queued, and processed by a small, fixed pool
+ * of compiler threads. If there is no job, the threads just sleep.
+ *
+ * <p>Jobs with the same destination directory (i.e. from the same project) are
+ * always processed one at a time, in the order they were added, because they
+ * read and write the same class files. Jobs for different projects may run
+ * concurrently.
+ *
+ * <p>If an error-checking job is added while an identical error-checking job is
+ * still waiting in the queue, the two are merged into a single compilation.
+ *
+ * @author Michael Cahill
+ * @author Michael Kolling
+ */
+class CompileScheduler
+{
+    /** Pending jobs, in the order they were added */
+    private final List<Job> jobs = new LinkedList<Job>();
+    /** Destination directories of the jobs which are currently being compiled */
+    private final Set<File> runningDirs = new HashSet<File>();
+    private int runningCount = 0;
+
+    /**
+     * Create a new compile scheduler, with one compiler thread for each of the given
+     * compilers. The threads are started immediately.
+     */
+    public CompileScheduler(List<Compiler> compilers)
+    {
+        // Lower priority to improve GUI response time during compilation
+        int priority = Thread.currentThread().getPriority() - 1;
+        priority = Math.max(priority, Thread.MIN_PRIORITY);
+
+        for (Compiler compiler : compilers) {
+            Thread thread = new Thread(() -> runJobs(compiler), Config.getString("compiler.thread.title"));
+            thread.setPriority(priority);
+            thread.start();
+        }
+    }
+
+    /**
+     * Run compilation jobs, forever, using the given compiler. Each compiler thread
+     * runs this method.
+     */
+    private void runJobs(Compiler compiler)
+    {
+        while (true) {
+            Job job = takeJob();
+            try {
+                job.compile(compiler);
+            }
+            finally {
+                synchronized (this) {
+                    runningDirs.remove(job.getDestDir());
+                    runningCount--;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait for a job which can be run (i.e. no other job for the same destination
+     * is running), remove it from the queue and return it.
+     */
+    private synchronized Job takeJob()
+    {
+        while (true) {
+            for (Iterator<Job> i = jobs.iterator(); i.hasNext(); ) {
+                Job job = i.next();
+                if (runningDirs.add(job.getDestDir())) {
+                    i.remove();
+                    runningCount++;
+                    return job;
+                }
+            }
+
+            try {
+                wait();
+            }
+            catch (InterruptedException e) {}
+        }
+    }
+
+    /**
+     * Add a new job to the queue. The job will be processed by a compiler
+     * thread some time in the near future. This method returns immediately.
+     */
+    @OnThread(Tag.Any)
+    public synchronized void addJob(Job job)
+    {
+        for (Job pending : jobs) {
+            if (pending.canMerge(job)) {
+                pending.merge(job);
+                return;
+            }
+        }
+
+        jobs.add(job);
+        notifyAll();
+    }
+
+    /**
+     * Check whether there are any jobs queued or being compiled.
+     */
+    @OnThread(Tag.Any)
+    public synchronized boolean isBusy()
+    {
+        return ! jobs.isEmpty() || runningCount != 0;
+    }
+
+    /**
+     * Wait until there are no jobs queued or being compiled, then return.
+     */
+    @OnThread(Tag.Any)
+    public synchronized void waitForEmptyQueue()
+    {
+        while (isBusy()) {
+            try {
+                wait();
+            }
+            catch (InterruptedException ex) {}
+        }
+    }
+}
@@ -24,7 +24,9 @@ package bluej.compiler;
 
 import java.io.File;
 import java.nio.charset.Charset;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Compiler class - an abstract interface to a source-to-bytecode compiler. This
@@ -44,6 +46,8 @@ abstract class Compiler
     private File[] bootClassPath;
     private boolean debug;
     private boolean deprecation;
+    private Map<File, String> sourceText = Collections.emptyMap();
+    private Map<String, byte[]> classOutput;
     
     /**
      * Set the destination directory - the base directory for where the compiled class files
@@ -72,6 +76,31 @@ abstract class Compiler
         this.bootClassPath = bootClassPath;
     }
     
+    /**
+     * Specify that the sources are held in memory, and that the class files should be
+     * held in memory rather than written to the destination directory.
+     * 
+     * @param sourceText   The text of the sources which are held in memory (any others
+     *                     are read from file as usual)
+     * @param classOutput  A map into which the class files are put (binary class name
+     *                     to class file contents) if compilation is successful
+     */
+    public void setInMemory(Map<File, String> sourceText, Map<String, byte[]> classOutput)
+    {
+        this.sourceText = sourceText;
+        this.classOutput = classOutput;
+    }
+    
+    /**
+     * Specify that sources should be read from, and class files written to, the file
+     * system (this is the default).
+     */
+    public void setOnDisk()
+    {
+        sourceText = Collections.emptyMap();
+        classOutput = null;
+    }
+    
     public void setDebug(boolean debug)
     {
         this.debug = debug;
@@ -106,6 +135,24 @@ abstract class Compiler
     {
         return bootClassPath;
     }
+    
+    /**
+     * Get the text of sources held in memory, as a map from the source file (which
+     * needn't exist) to its text.
+     */
+    public Map<File, String> getSourceText()
+    {
+        return sourceText;
+    }
+    
+    /**
+     * Get the map into which class files are put if they are to be held in memory, or
+     * null if they are to be written to the destination directory.
+     */
+    public Map<String, byte[]> getClassOutput()
+    {
+        return classOutput;
+    }
 
     /**
      * Compile some source files.
@@ -25,7 +25,6 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -35,10 +34,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
 import javax.tools.StandardLocation;
-import javax.tools.ToolProvider;
 
 import bluej.Config;
 import bluej.compiler.Diagnostic.DiagnosticOrigin;
@@ -51,9 +50,16 @@ import bluej.compiler.Diagnostic.DiagnosticOrigin;
 public class CompilerAPICompiler extends Compiler
 {
     private static final AtomicInteger nextDiagnosticIdentifier = new AtomicInteger(1);
+    
+    private final CompilerSession session;
 
-    public CompilerAPICompiler()
+    /**
+     * Construct a compiler which uses the given session to obtain the Java compiler
+     * and file manager.
+     */
+    public CompilerAPICompiler(CompilerSession session)
     {
+        this.session = session;
         setDebug(true);
         setDeprecation(true);
     }
@@ -77,7 +83,7 @@ public class CompilerAPICompiler extends Compiler
             final boolean internal, List<String> userOptions, Charset fileCharset, CompileType type)
     {
         boolean result = true;
-        JavaCompiler jc = ToolProvider.getSystemJavaCompiler();
+        JavaCompiler jc = session.getJavaCompiler();
         List<String> optionsList = new ArrayList<String>();
         
         if (jc == null) {
@@ -184,8 +190,20 @@ public class CompilerAPICompiler extends Compiler
         
         try
         {  
-            //setup the filemanager
-            StandardJavaFileManager sjfm = jc.getStandardFileManager(diagListener, null, fileCharset);
+            //add any options
+            if(isDebug()) {
+                optionsList.add("-g");
+            }
+            if(isDeprecation()) {
+                optionsList.add("-deprecation");
+            }
+            optionsList.addAll(userOptions);
+            
+            //setup the filemanager; the session re-uses it (and its indexes of
+            //the classpath archives) between compiles where possible
+            File[] bootClassPath = getBootClassPath();
+            StandardJavaFileManager sjfm = session.getFileManager(getClassPath(), bootClassPath,
+                    fileCharset, optionsList, diagListener);
             List<File> pathList = new ArrayList<File>();
             List<File> outputList = new ArrayList<File>();
             outputList.add(getDestDir());
@@ -195,43 +213,49 @@ public class CompilerAPICompiler extends Compiler
             // always the same
             sjfm.setLocation(StandardLocation.SOURCE_PATH, outputList);
             sjfm.setLocation(StandardLocation.CLASS_PATH, pathList);
-            File tempDir = null;
-            if (type.keepClasses())
+            JavaFileManager fileManager;
+            MemoryClassOutputFileManager memoryFileManager = null;
+            if (type.keepClasses() && getClassOutput() == null)
             {
                 sjfm.setLocation(StandardLocation.CLASS_OUTPUT, outputList);
+                fileManager = sjfm;
             }
             else
             {
-                // We could make a new file manager that memory-mapped the output files
-                // and discarded them... but creating a temporary dir is much more
-                // straightforward:
-                tempDir = Files.createTempDirectory("bluej").toFile();
-                sjfm.setLocation(StandardLocation.CLASS_OUTPUT, Arrays.asList(tempDir));
-            }
-            
-            //get the source files for compilation  
-            Iterable<? extends JavaFileObject> compilationUnits1 =
-                sjfm.getJavaFileObjectsFromFiles(Arrays.asList(sources));
-            //add any options
-            if(isDebug()) {
-                optionsList.add("-g");
-            }
-            if(isDeprecation()) {
-                optionsList.add("-deprecation");
+                // The class files are to be discarded, or handed back in memory, so hold
+                // them in memory rather than writing them out to a directory:
+                memoryFileManager = new MemoryClassOutputFileManager(sjfm);
+                fileManager = memoryFileManager;
             }
             
-            File[] bootClassPath = getBootClassPath();
             if (bootClassPath != null && bootClassPath.length != 0) {
                 sjfm.setLocation(StandardLocation.PLATFORM_CLASS_PATH, Arrays.asList(bootClassPath));
             }
             
-            optionsList.addAll(userOptions);
+            //get the source files for compilation  
+            List<JavaFileObject> compilationUnits = new ArrayList<JavaFileObject>();
+            List<File> sourceFiles = new ArrayList<File>();
+            for (File source : sources) {
+                String text = getSourceText().get(source);
+                if (text != null) {
+                    compilationUnits.add(new MemorySourceFile(source, text));
+                }
+                else {
+                    sourceFiles.add(source);
+                }
+            }
+            for (JavaFileObject jfo : sjfm.getJavaFileObjectsFromFiles(sourceFiles)) {
+                compilationUnits.add(jfo);
+            }
             
             //compile
-            result = jc.getTask(null, sjfm, diagListener, optionsList, null, compilationUnits1).call();
-            sjfm.close();
-            if (tempDir != null)
-                tempDir.delete();
+            result = jc.getTask(null, fileManager, diagListener, optionsList, null, compilationUnits).call();
+            // Don't close the file manager; it belongs to the session
+            fileManager.flush();
+            
+            if (result && getClassOutput() != null) {
+                getClassOutput().putAll(memoryFileManager.getClassBytes());
+            }
         }
         catch(IOException e)
         {
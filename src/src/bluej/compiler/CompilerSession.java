@@ -0,0 +1,162 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2016  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticListener;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import bluej.utility.Debug;
+
+/**
+ * A long-lived compiler session. This holds on to the system Java compiler and
+ * a standard file manager between compilation jobs, so that the file manager's
+ * cached indexes of the library jars (and boot classpath) can be re-used rather
+ * than rebuilt for every compile.
+ *
+ * <p>The file manager is recreated whenever the classpath, boot classpath, source
+ * character set or compiler options change, or when a jar on the classpath has
+ * been modified on disk.
+ */
+class CompilerSession
+{
+    private JavaCompiler javaCompiler;
+    private StandardJavaFileManager fileManager;
+
+    /** The settings which the current file manager was created for */
+    private List<Object> fileManagerKey;
+
+    /**
+     * The listener for diagnostics produced by the file manager itself. This
+     * forwards to the listener for the current compilation.
+     */
+    private final SessionDiagnosticListener diagListener = new SessionDiagnosticListener();
+
+    /**
+     * Get the system Java compiler.
+     *
+     * @return  the compiler, or null if no compiler is available.
+     */
+    public synchronized JavaCompiler getJavaCompiler()
+    {
+        if (javaCompiler == null) {
+            javaCompiler = ToolProvider.getSystemJavaCompiler();
+        }
+        return javaCompiler;
+    }
+
+    /**
+     * Get a file manager suitable for a compilation with the given settings. If the
+     * existing file manager was created for the same settings, it is returned;
+     * otherwise, it is closed and a new one is created.
+     *
+     * <p>The returned file manager should not be closed by the caller.
+     *
+     * @param classPath     The classpath for the compilation
+     * @param bootClassPath The boot classpath (may be null)
+     * @param fileCharset   The character set of the source files
+     * @param options       The options which will be passed to the compiler
+     * @param listener      The listener for diagnostics during this compilation
+     */
+    public synchronized StandardJavaFileManager getFileManager(File[] classPath, File[] bootClassPath,
+            Charset fileCharset, List<String> options, DiagnosticListener<? super JavaFileObject> listener)
+    {
+        List<Object> key = new ArrayList<Object>();
+        addPathKey(key, classPath);
+        key.add(null);
+        addPathKey(key, bootClassPath);
+        key.add(fileCharset);
+        key.addAll(options);
+
+        if (fileManager == null || ! key.equals(fileManagerKey)) {
+            close();
+            fileManager = getJavaCompiler().getStandardFileManager(diagListener, null, fileCharset);
+            fileManagerKey = key;
+        }
+
+        diagListener.target = listener;
+        return fileManager;
+    }
+
+    /**
+     * Close the current file manager (if any), releasing any open archives.
+     */
+    public synchronized void close()
+    {
+        if (fileManager != null) {
+            try {
+                fileManager.close();
+            }
+            catch (IOException ioe) {
+                Debug.reportError("Error closing compiler file manager", ioe);
+            }
+            fileManager = null;
+            fileManagerKey = null;
+        }
+    }
+
+    /**
+     * Add the elements of a path to a file manager key. For archives, the size and
+     * modification time are also added, so that a replaced jar will not be served
+     * from a stale index.
+     */
+    private static void addPathKey(List<Object> key, File[] path)
+    {
+        if (path == null) {
+            return;
+        }
+
+        for (File f : path) {
+            key.add(f);
+            if (f.isFile()) {
+                key.add(f.length());
+                key.add(f.lastModified());
+            }
+        }
+    }
+
+    /**
+     * A diagnostic listener which forwards to a (replaceable) target listener.
+     */
+    private static class SessionDiagnosticListener implements DiagnosticListener<JavaFileObject>
+    {
+        private volatile DiagnosticListener<? super JavaFileObject> target;
+
+        @Override
+        public void report(Diagnostic<? extends JavaFileObject> diagnostic)
+        {
+            DiagnosticListener<? super JavaFileObject> currentTarget = target;
+            if (currentTarget != null) {
+                currentTarget.report(diagnostic);
+            }
+        }
+    }
+}
@@ -23,7 +23,13 @@ package bluej.compiler;
 
 import java.io.File;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import bluej.Config;
@@ -31,15 +37,17 @@ import bluej.classmgr.BPClassLoader;
 
 /**
  * A compiler "job". A list of filenames to compile + parameters.
- * Jobs are held in a queue by the CompilerThread, which compiles them
- * by running the job's "compile" method.
+ * Jobs are held in a queue by the CompileScheduler, which compiles them
+ * by running the job's "compile" method on one of its worker threads.
+ *
+ * <p>Several observers may be attached to a single job, if redundant
+ * error-checking jobs have been merged (see {@link #canMerge(Job)}).
  *
  * @author  Michael Cahill
  */
 class Job
 {
-    Compiler compiler;  // The compiler for this job
-    CompileObserver observer;
+    private final List<CompileObserver> observers = new ArrayList<CompileObserver>();
     File destDir;
     BPClassLoader bpClassLoader;
     CompileInputFile sources[];
@@ -50,6 +58,12 @@ class Job
     private Charset fileCharset;
     private CompileType type;
     private CompileReason reason;
+    /** The text of sources held in memory, or null if all sources are files */
+    private Map<File, String> sourceText;
+    /** The map receiving class files held in memory, or null if they are written out */
+    private Map<String, byte[]> classOutput;
+    /** The time (System.nanoTime()) at which the job was queued */
+    private final long queuedTime = System.nanoTime();
 
     /**
      * Generator for unique ascending compilation identifiers.  It doesn't matter if it's shared between
@@ -61,13 +75,14 @@ class Job
     /**
      * Create a job with a set of sources.
      */
-    public Job(CompileInputFile[] sourceFiles, Compiler compiler, CompileObserver observer,
+    public Job(CompileInputFile[] sourceFiles, CompileObserver observer,
                         BPClassLoader bpClassLoader, File destDir, boolean internal,
                         List<String> userCompileOptions, Charset fileCharset, CompileType type, CompileReason reason)
     {
         this.sources = sourceFiles;
-        this.compiler = compiler;
-        this.observer = observer;
+        if (observer != null) {
+            observers.add(observer);
+        }
         this.bpClassLoader = bpClassLoader;
         this.destDir = destDir;
         this.internal = internal;
@@ -78,16 +93,76 @@ class Job
     }
     
     /**
-     * Compile this job
+     * Specify that this job's sources are held in memory, and that the class files
+     * should be held in memory too (see Compiler.setInMemory()).
+     */
+    public void setInMemory(Map<File, String> sourceText, Map<String, byte[]> classOutput)
+    {
+        this.sourceText = sourceText;
+        this.classOutput = classOutput;
+    }
+    
+    /**
+     * Get the destination directory for this job. Jobs with the same destination
+     * directory are never run concurrently.
+     */
+    public File getDestDir()
+    {
+        return destDir;
+    }
+    
+    /**
+     * Check whether the given (newer) job is redundant with this one, which has not
+     * yet started. This is the case if both jobs are error-checking compiles of the same
+     * set of files with the same settings: the files are only read when compilation starts,
+     * so this job will see the newer edits anyway.
      */
-    public void compile()
+    public boolean canMerge(Job newer)
+    {
+        if (type != CompileType.ERROR_CHECK_ONLY || newer.type != CompileType.ERROR_CHECK_ONLY) {
+            return false;
+        }
+        
+        if (! Objects.equals(destDir, newer.destDir) || bpClassLoader != newer.bpClassLoader
+                || internal != newer.internal || ! Objects.equals(fileCharset, newer.fileCharset)
+                || ! userCompileOptions.equals(newer.userCompileOptions)) {
+            return false;
+        }
+        
+        return getSourceFiles().equals(newer.getSourceFiles());
+    }
+    
+    /**
+     * Merge a redundant job (see {@link #canMerge(Job)}) into this one. The observers of
+     * the other job will be notified of this job's progress.
+     */
+    public void merge(Job newer)
+    {
+        synchronized (observers) {
+            observers.addAll(newer.observers);
+        }
+    }
+    
+    private Set<File> getSourceFiles()
+    {
+        Set<File> files = new HashSet<File>();
+        for (CompileInputFile f : sources) {
+            files.add(f.getJavaCompileInputFile());
+        }
+        return files;
+    }
+    
+    /**
+     * Compile this job, using the given compiler.
+     */
+    public void compile(Compiler compiler)
     {
         int compilationSequence = nextCompilationSequence.getAndIncrement();
+        long startTime = System.nanoTime();
+        CompileObserver observer = getObserver();
 
         try {
-            if(observer != null) {
-                observer.startCompile(sources, reason, type, compilationSequence);
-            }
+            observer.startCompile(sources, reason, type, compilationSequence);
 
             if(destDir != null) {
                 compiler.setDestDir(destDir);
@@ -96,6 +171,12 @@ class Job
             compiler.setClasspath(bpClassLoader.getClassPathAsFiles());
 
             compiler.setBootClassPath(null);
+            if (sourceText != null) {
+                compiler.setInMemory(sourceText, classOutput);
+            }
+            else {
+                compiler.setOnDisk();
+            }
             String majorVersion = System.getProperty("java.specification.version");
             userCompileOptions.add(0, "-source");
             userCompileOptions.add(1, majorVersion);
@@ -106,15 +187,64 @@ class Job
 
             boolean successful = compiler.compile(actualSourceFiles, observer, internal, userCompileOptions, fileCharset, type);
 
-            if(observer != null) {
-                observer.endCompile(sources, successful, type, compilationSequence);
-            }
+            observer.compileTimes(sources, type, compilationSequence, toMillis(startTime - queuedTime),
+                    toMillis(System.nanoTime() - startTime));
+            observer.endCompile(sources, successful, type, compilationSequence);
         } catch(Exception e) {
             System.err.println(Config.getString("compileException") + ": " + e);
             e.printStackTrace();
-            if (observer != null) {
-                observer.endCompile(sources, false, type, compilationSequence);
-            }
+            observer.endCompile(sources, false, type, compilationSequence);
         }
     }
+    
+    private static long toMillis(long nanos)
+    {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+    
+    /**
+     * Get an observer which passes notifications on to all of this job's observers.
+     */
+    private CompileObserver getObserver()
+    {
+        final CompileObserver[] targets;
+        synchronized (observers) {
+            targets = observers.toArray(new CompileObserver[observers.size()]);
+        }
+        
+        return new CompileObserver() {
+            @Override
+            public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
+            {
+                for (CompileObserver o : targets) {
+                    o.startCompile(sources, reason, type, compilationSequence);
+                }
+            }
+            
+            @Override
+            public void compilerMessage(Diagnostic diagnostic, CompileType type)
+            {
+                for (CompileObserver o : targets) {
+                    o.compilerMessage(diagnostic, type);
+                }
+            }
+            
+            @Override
+            public void compileTimes(CompileInputFile[] sources, CompileType type, int compilationSequence,
+                    long queueWaitMillis, long compileMillis)
+            {
+                for (CompileObserver o : targets) {
+                    o.compileTimes(sources, type, compilationSequence, queueWaitMillis, compileMillis);
+                }
+            }
+            
+            @Override
+            public void endCompile(CompileInputFile[] sources, boolean succesful, CompileType type, int compilationSequence)
+            {
+                for (CompileObserver o : targets) {
+                    o.endCompile(sources, succesful, type, compilationSequence);
+                }
+            }
+        };
+    }
 }
@@ -24,7 +24,9 @@ package bluej.compiler;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import bluej.Config;
 import bluej.classmgr.BPClassLoader;
@@ -50,23 +52,23 @@ public class JobQueue
 
     // ---- instance ----
 
-    private CompilerThread thread = null;
-    private Compiler compiler = null;
+    private CompileScheduler scheduler = null;
 
     /**
      * Construct the JobQueue. This is private; use getJobQueue() to get the job queue instance.
      */
     private JobQueue()
     {
-        compiler = new CompilerAPICompiler();
-        thread = new CompilerThread();
-
-        // Lower priority to improve GUI response time during compilation
-        int priority = Thread.currentThread().getPriority() - 1;
-        priority = Math.max(priority, Thread.MIN_PRIORITY);
-        thread.setPriority(priority);
-
-        thread.start();
+        int defaultThreads = Math.min(Runtime.getRuntime().availableProcessors(), 4);
+        int threadCount = Math.max(Config.getPropInteger("bluej.compiler.threads", defaultThreads), 1);
+        
+        // Each compiler thread has its own compiler, and its own session which keeps
+        // the file manager warm between jobs:
+        List<Compiler> compilers = new ArrayList<Compiler>();
+        for (int i = 0; i < threadCount; i++) {
+            compilers.add(new CompilerAPICompiler(new CompilerSession()));
+        }
+        scheduler = new CompileScheduler(compilers);
     }
 
     /**
@@ -86,22 +88,44 @@ public class JobQueue
         String optionString = Config.getPropString(Compiler.COMPILER_OPTIONS, "");
         options.addAll(Utility.dequoteCommandLine(optionString));
         
-        thread.addJob(new Job(sources, compiler, observer, bpClassLoader,
+        scheduler.addJob(new Job(sources, observer, bpClassLoader,
                 destDir, suppressUnchecked, options, fileCharset, type, reason));
     }
 
+    /**
+     * Adds a job to compile a single source held in memory rather than in a file (a
+     * shell class), with the class files also held in memory. Nothing is written to
+     * the destination directory.
+     * 
+     * @param source      The source file; it need not exist, but is used as the
+     *                    source name in diagnostics
+     * @param sourceText  The source code
+     * @param observer    Observer to be notified when compilation begins,
+     *                    errors/warnings, completes
+     * @param fileCharset The character set of other sources which the compiler reads
+     * @param classOutput A map into which the class files are put, as a map from binary
+     *                    class name to class file contents, before the observer is
+     *                    notified of the end of a successful compilation
+     */
+    public void addMemoryJob(CompileInputFile source, String sourceText, CompileObserver observer,
+            BPClassLoader bpClassLoader, File destDir, Charset fileCharset, CompileReason reason,
+            Map<String, byte[]> classOutput)
+    {
+        List<String> options = new ArrayList<String>();
+        String optionString = Config.getPropString(Compiler.COMPILER_OPTIONS, "");
+        options.addAll(Utility.dequoteCommandLine(optionString));
+        
+        Job job = new Job(new CompileInputFile[] {source}, observer, bpClassLoader, destDir,
+                true, options, fileCharset, CompileType.INTERNAL_COMPILE, reason);
+        job.setInMemory(Collections.singletonMap(source.getJavaCompileInputFile(), sourceText), classOutput);
+        scheduler.addJob(job);
+    }
+
     /**
      * Wait until the compiler job queue is empty, then return.
      */
     public void waitForEmptyQueue()
     {
-        synchronized (thread) {
-            while (thread.isBusy()) {
-                try {
-                    thread.wait();
-                }
-                catch (InterruptedException ex) {}
-            }
-        }
+        scheduler.waitForEmptyQueue();
     }
 }
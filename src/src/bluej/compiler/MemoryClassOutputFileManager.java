@@ -0,0 +1,132 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2016  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+
+/**
+ * A file manager which forwards everything to a standard file manager, except
+ * that class files written to the CLASS_OUTPUT location are held in memory
+ * rather than being written to disk.
+ *
+ * <p>This is used for compiles where we don't keep the class files (e.g. error
+ * checking while the user types), so that we don't need to create, fill and
+ * then remove a temporary directory for every compilation, and for shell classes,
+ * whose class files are passed straight to the debug VM.
+ */
+class MemoryClassOutputFileManager extends ForwardingJavaFileManager<StandardJavaFileManager>
+{
+    /** Class files output so far, keyed by binary class name */
+    private final Map<String, byte[]> classBytes = new HashMap<String, byte[]>();
+
+    /**
+     * Construct a new memory-output file manager wrapping the given standard file manager.
+     */
+    public MemoryClassOutputFileManager(StandardJavaFileManager fileManager)
+    {
+        super(fileManager);
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, Kind kind,
+            FileObject sibling) throws IOException
+    {
+        if (location == StandardLocation.CLASS_OUTPUT && kind == Kind.CLASS) {
+            return new MemoryClassFile(className);
+        }
+        return super.getJavaFileForOutput(location, className, kind, sibling);
+    }
+
+    @Override
+    public boolean isSameFile(FileObject a, FileObject b)
+    {
+        if (a instanceof MemoryClassFile || b instanceof MemoryClassFile
+                || a instanceof MemorySourceFile || b instanceof MemorySourceFile) {
+            return a == b;
+        }
+        return super.isSameFile(a, b);
+    }
+
+    /**
+     * Get the class files which were generated during compilation, as a map from
+     * binary class name to the class file contents.
+     */
+    public synchronized Map<String, byte[]> getClassBytes()
+    {
+        return Collections.unmodifiableMap(new HashMap<String, byte[]>(classBytes));
+    }
+
+    /**
+     * Discard any class files held in memory.
+     */
+    public synchronized void clear()
+    {
+        classBytes.clear();
+    }
+
+    private synchronized void storeClass(String className, byte[] bytes)
+    {
+        classBytes.put(className, bytes);
+    }
+
+    /**
+     * A class file object whose contents are stored in the file manager when
+     * the output stream is closed.
+     */
+    private class MemoryClassFile extends SimpleJavaFileObject
+    {
+        private final String className;
+
+        MemoryClassFile(String className)
+        {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.className = className;
+        }
+
+        @Override
+        public OutputStream openOutputStream()
+        {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() throws IOException
+                {
+                    super.close();
+                    storeClass(className, toByteArray());
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2017  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.compiler;
+
+import java.io.File;
+
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * A source file whose text is held in memory, rather than read from the file
+ * system. The file it would have been is used to name it in diagnostics (and in
+ * the class files generated from it).
+ */
+class MemorySourceFile extends SimpleJavaFileObject
+{
+    private final File file;
+    private final String text;
+
+    /**
+     * Construct a source file object with the given text.
+     */
+    MemorySourceFile(File file, String text)
+    {
+        super(file.toURI(), Kind.SOURCE);
+        this.file = file;
+        this.text = text;
+    }
+
+    @Override
+    public String getName()
+    {
+        return file.getPath();
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors)
+    {
+        return text;
+    }
+}
@@ -23,8 +23,10 @@ package bluej.debugger;
 
 import java.io.File;
 import java.net.URL;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import bluej.classmgr.BPClassLoader;
 import bluej.debugger.jdi.JdiDebugger;
@@ -215,6 +217,27 @@ public abstract class Debugger
     @OnThread(Tag.Any)
     public abstract DebuggerTestResult runTestMethod(String className, String methodName);
 
+    /**
+     * Run test methods in a number of separate worker VMs, in parallel. The methods
+     * of each test class are run in order, in the same worker VM. The worker VMs do
+     * not stop at breakpoints, and are closed again once all the tests have run.
+     * 
+     * <p>This method returns once all the tests have been run, but the result of
+     * each test is passed to the listener (on an arbitrary thread) as soon as it is
+     * available.
+     * 
+     * @param  tests           map from the fully qualified name of each test class
+     *                         to the names of the test methods to run
+     * @param  workers         the maximum number of worker VMs to use
+     * @param  resultListener  the listener to receive the test results
+     * @return  true if the tests were run, or false if they could not be run in
+     *          worker VMs (e.g. because there are breakpoints set), in which case
+     *          none of them have been run
+     */
+    @OnThread(Tag.Any)
+    public abstract boolean runTestsInWorkers(Map<String, List<String>> tests, int workers,
+            Consumer<DebuggerTestResult> resultListener);
+
     /**
      * Dispose all top level windows in the remote machine.
      */
@@ -228,6 +251,18 @@ public abstract class Debugger
     public abstract FXPlatformSupplier<DebuggerResult> runClassMain(String className)
         throws ClassNotFoundException;
 
+    /**
+     * "Run" a shell class whose class files have been compiled in memory rather than
+     * written to the package directory.
+     * 
+     * @param className   The name of the shell class
+     * @param classFiles  The class files of the shell class and any inner classes, as
+     *                    a map from binary class name to class file contents
+     */
+    @OnThread(Tag.Any)
+    public abstract FXPlatformSupplier<DebuggerResult> runClassMain(String className, Map<String, byte[]> classFiles)
+        throws ClassNotFoundException;
+
     /**
      * Instantiate a class using the default constructor for that class.
      * @param className  The name of the class to instantiate
@@ -245,6 +280,26 @@ public abstract class Debugger
      * @return   The result of the constructor call
      */
     public abstract FXPlatformSupplier<DebuggerResult> instantiateClass(String className, String [] paramTypes, DebuggerObject [] args);
+
+    /**
+     * Invoke a method or constructor directly, without compiling a shell class. This
+     * is only possible when each argument is a simple value or an object from the
+     * given scope.
+     * 
+     * @param className   The class declaring the method or constructor
+     * @param methodName  The method name, or null to invoke a constructor
+     * @param paramTypes  The formal parameter types (as given by Class.getName())
+     * @param scopeId     The scope containing any objects named as the target or arguments
+     * @param targetName  The name of the object on which to invoke an instance method,
+     *                    or null for a static method or constructor
+     * @param args        The arguments, in the form described by
+     *                    bluej.runtime.ExecServer.INVOKE_DIRECT
+     * @return   The result: for a constructor, the new object; for a method, the
+     *           result wrapped as for a shell class (or null for a void method)
+     */
+    @OnThread(Tag.Any)
+    public abstract FXPlatformSupplier<DebuggerResult> invokeDirect(String className, String methodName,
+            String [] paramTypes, String scopeId, String targetName, String [] args);
     
     /**
      * Get a class from the virtual machine, using the current classloader.
@@ -125,6 +125,16 @@ public abstract class DebuggerObject
      */
     public abstract String getElementValueString(int index);
 
+    /**
+     * Return string representations of a range of array elements, as given by
+     * getElementValueString(int) for each element.  Fetching a range of elements
+     * at once is much faster than fetching them one at a time.
+     * 
+     * @param index   the index of the first element
+     * @param length  the number of elements
+     */
+    public abstract List<String> getElementValueStrings(int index, int length);
+
     /**
      * Return the JDI object. This exposes the JDI to Inspectors.
      * If JDI is not being used, it should return null.
@@ -27,6 +27,9 @@ import bluej.debugger.gentype.GenTypeArrayClass;
 import bluej.debugger.gentype.GenTypeClass;
 import bluej.debugger.gentype.JavaType;
 import bluej.debugger.gentype.Reflective;
+import bluej.utility.Utility;
+
+import java.util.List;
 
 import com.sun.jdi.ArrayReference;
 import com.sun.jdi.ArrayType;
@@ -178,6 +181,15 @@ public class JdiArray extends JdiObject
         return JdiUtils.getJdiUtils().getValueString(val);
     }
 
+    @Override
+    public List<String> getElementValueStrings(int index, int length)
+    {
+        // A single request to the remote VM, rather than one per element:
+        List<Value> vals = ((ArrayReference) obj).getValues(index, length);
+        JdiUtils jdiUtils = JdiUtils.getJdiUtils();
+        return Utility.mapList(vals, jdiUtils::getValueString);
+    }
+
     /*
      * Return the object in object field 'slot'.
      *
@@ -24,14 +24,18 @@ package bluej.debugger.jdi;
 import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
 import bluej.BlueJEvent;
 import bluej.BlueJEventListener;
@@ -72,6 +76,10 @@ import com.sun.jdi.Value;
  * thread is created immediately so that any method calls/etc will execute on
  * the new machine (after waiting until it has loaded).
  * 
+ * <p>Once a machine has loaded, a standby machine is started in the background.
+ * When the vm is restarted, the loader thread activates the standby machine
+ * rather than waiting for a new one to start up.
+ * 
  * @author Michael Kolling
  * @author Andrew Patterson
  */
@@ -98,6 +106,24 @@ public class JdiDebugger extends Debugger
     // the thread that we spawn to load the current remote VM
     @OnThread(Tag.Any)
     private MachineLoaderThread machineLoader;
+
+    /**
+     * A remote VM which has been started in advance, to replace the current one when
+     * it is restarted. Null if there is no standby VM (or it is still starting up).
+     */
+    @OnThread(Tag.Any)
+    private VMReference standbyVM;
+    // Whether a standby VM is currently starting up
+    @OnThread(Tag.Any)
+    private boolean standbyStarting;
+
+    // The VMs currently running tests for runTestsInWorkers, and whether the test run
+    // has been stopped (by the debug VM being reset or terminated). Protected by
+    // testWorkerVMs:
+    @OnThread(Tag.Any)
+    private final List<VMReference> testWorkerVMs = new ArrayList<VMReference>();
+    @OnThread(Tag.Any)
+    private boolean testWorkersStopped;
     
     /** An object to provide a lock for server thread execution */
     @OnThread(Tag.Any)
@@ -169,7 +195,17 @@ public class JdiDebugger extends Debugger
     @Override
     public void setUserLibraries(URL[] libraries)
     {
-        this.libraries = libraries;
+        VMReference oldStandby = null;
+        synchronized (this) {
+            if (! Arrays.equals(this.libraries, libraries)) {
+                // A standby VM with the old libraries is no use:
+                oldStandby = takeStandbyVM();
+            }
+            this.libraries = libraries;
+        }
+        if (oldStandby != null) {
+            oldStandby.close();
+        }
     }
     
     /**
@@ -235,6 +271,9 @@ public class JdiDebugger extends Debugger
         // Launching: vmRunning = false. selfRestart = false.
         //              machineLoader != null.
 
+        // Any tests running in worker VMs go the same way as the debug VM:
+        stopTestWorkers();
+
         if (vmRef != null) {
             // The process is already started. We want to stop it (and
             // possibly to then restart it).
@@ -263,6 +302,68 @@ public class JdiDebugger extends Debugger
             selfRestart = false;
             machineLoader = null;
         }
+
+        if (!restart) {
+            VMReference oldStandby = takeStandbyVM();
+            if (oldStandby != null) {
+                oldStandby.close();
+            }
+        }
+    }
+
+    /**
+     * Stop any tests running in worker VMs, by closing the VMs. Tests which have
+     * not yet started are not run.
+     */
+    @OnThread(Tag.Any)
+    private void stopTestWorkers()
+    {
+        List<VMReference> vms;
+        synchronized (testWorkerVMs) {
+            testWorkersStopped = true;
+            vms = new ArrayList<VMReference>(testWorkerVMs);
+        }
+        for (VMReference vm : vms) {
+            vm.close();
+        }
+    }
+
+    @OnThread(Tag.Any)
+    private boolean testWorkersStopped()
+    {
+        synchronized (testWorkerVMs) {
+            return testWorkersStopped;
+        }
+    }
+
+    /**
+     * Start a standby VM in the background, if we don't already have one.
+     */
+    @OnThread(Tag.Any)
+    private synchronized void startStandbyVM()
+    {
+        if (! Config.getPropBoolean("bluej.vm.standby", true)) {
+            return;
+        }
+        if (autoRestart && standbyVM == null && ! standbyStarting) {
+            standbyStarting = true;
+            StandbyLoaderThread loader = new StandbyLoaderThread(libraries);
+            loader.setPriority(loaderPriority);
+            loader.start();
+        }
+    }
+
+    /**
+     * Take the standby VM, if there is one, so that it is no longer the standby VM.
+     * 
+     * @return  The standby VM, or null if there is none.
+     */
+    @OnThread(Tag.Any)
+    private synchronized VMReference takeStandbyVM()
+    {
+        VMReference vm = standbyVM;
+        standbyVM = null;
+        return vm;
     }
 
     /**
@@ -568,34 +669,7 @@ public class JdiDebugger extends Debugger
                     arrayRef = (ArrayReference) vmr.invokeRunTest(className, methodName);
                 }
                 
-                if (arrayRef == null || arrayRef.length() == 0) {
-                    return new JdiTestResultError(className, methodName, "VM returned unknown result", "", null, 0);
-                }
-                
-                int runTimeMs = Integer.parseInt(((StringReference) arrayRef.getValue(0)).value());
-                
-                if (arrayRef != null && arrayRef.length() > 5) {
-                    String failureType = ((StringReference) arrayRef.getValue(7)).value();
-                    String exMsg = ((StringReference) arrayRef.getValue(1)).value();
-                    String traceMsg = ((StringReference) arrayRef.getValue(2)).value();
-                    
-                    String failureClass = ((StringReference) arrayRef.getValue(3)).value();
-                    String failureSource = ((StringReference) arrayRef.getValue(4)).value();
-                    String failureMethod = ((StringReference) arrayRef.getValue(5)).value();
-                    int lineNo = Integer.parseInt(((StringReference) arrayRef.getValue(6)).value());
-                    SourceLocation failPoint = new SourceLocation(failureClass, failureSource, failureMethod, lineNo);
-                    
-                    if (failureType.equals("failure")) {
-                        return new JdiTestResultFailure(className, methodName, exMsg, traceMsg, failPoint, runTimeMs);
-                    }
-                    else {
-                        return new JdiTestResultError(className, methodName, exMsg, traceMsg, failPoint, runTimeMs);
-                    }
-                    
-                } else if (arrayRef != null && arrayRef.length() == 1) {
-                    // Success - extract the run time in mS
-                    return new JdiTestResult(className, methodName, runTimeMs);
-                }
+                return makeTestResult(className, methodName, arrayRef);
             }
         }
         catch (InvocationException ie) {
@@ -605,11 +679,205 @@ public class JdiDebugger extends Debugger
         catch (VMDisconnectedException vmde) {
             return new JdiTestResultError(className, methodName, "VM restarted", "", null, 0);
         }
+    }
+
+    /**
+     * Make a test result from the array returned by running a test method.
+     */
+    @OnThread(Tag.Any)
+    private static DebuggerTestResult makeTestResult(String className, String methodName, ArrayReference arrayRef)
+    {
+        if (arrayRef == null || arrayRef.length() == 0) {
+            return new JdiTestResultError(className, methodName, "VM returned unknown result", "", null, 0);
+        }
+        
+        int runTimeMs = Integer.parseInt(((StringReference) arrayRef.getValue(0)).value());
+        
+        if (arrayRef.length() > 5) {
+            String failureType = ((StringReference) arrayRef.getValue(7)).value();
+            String exMsg = ((StringReference) arrayRef.getValue(1)).value();
+            String traceMsg = ((StringReference) arrayRef.getValue(2)).value();
+            
+            String failureClass = ((StringReference) arrayRef.getValue(3)).value();
+            String failureSource = ((StringReference) arrayRef.getValue(4)).value();
+            String failureMethod = ((StringReference) arrayRef.getValue(5)).value();
+            int lineNo = Integer.parseInt(((StringReference) arrayRef.getValue(6)).value());
+            SourceLocation failPoint = new SourceLocation(failureClass, failureSource, failureMethod, lineNo);
+            
+            if (failureType.equals("failure")) {
+                return new JdiTestResultFailure(className, methodName, exMsg, traceMsg, failPoint, runTimeMs);
+            }
+            else {
+                return new JdiTestResultError(className, methodName, exMsg, traceMsg, failPoint, runTimeMs);
+            }
+            
+        } else if (arrayRef.length() == 1) {
+            // Success - extract the run time in mS
+            return new JdiTestResult(className, methodName, runTimeMs);
+        }
         
         // should never get here
         return new JdiTestResultError(className, methodName, "VM returned unknown result", "", null, 0);
     }
 
+    @Override
+    @OnThread(Tag.Any)
+    public boolean runTestsInWorkers(Map<String, List<String>> tests, int workers,
+            Consumer<DebuggerTestResult> resultListener)
+    {
+        BPClassLoader loader;
+        URL[] workerLibraries;
+        synchronized (this) {
+            loader = lastProjectClassLoader;
+            workerLibraries = libraries;
+        }
+        VMReference vmr = getVM();
+        if (loader == null || vmr == null) {
+            return false;
+        }
+        synchronized (serverThreadLock) {
+            // Breakpoints are only set in the main VM, so use that if there are any:
+            if (! vmr.getBreakpoints().isEmpty()) {
+                return false;
+            }
+        }
+
+        synchronized (testWorkerVMs) {
+            testWorkersStopped = false;
+        }
+
+        Queue<TestClassRun> queue = new ConcurrentLinkedQueue<TestClassRun>();
+        for (Map.Entry<String, List<String>> test : tests.entrySet()) {
+            queue.add(new TestClassRun(test.getKey(), test.getValue()));
+        }
+        
+        URL[] classpath = loader.getURLs();
+        List<TestWorkerThread> workerThreads = new ArrayList<TestWorkerThread>();
+        for (int i = 0; i < Math.min(workers, queue.size()); i++) {
+            TestWorkerThread workerThread = new TestWorkerThread(queue, classpath, workerLibraries, resultListener);
+            workerThread.start();
+            workerThreads.add(workerThread);
+        }
+        
+        for (TestWorkerThread workerThread : workerThreads) {
+            try {
+                workerThread.join();
+            }
+            catch (InterruptedException ie) {}
+        }
+        
+        // Anything left over (if worker VMs could not be started, or were terminated)
+        // is run in the main VM; unless the run was stopped by a reset:
+        TestClassRun run;
+        while (! testWorkersStopped() && (run = queue.poll()) != null) {
+            for (String methodName : run.methodNames) {
+                resultListener.accept(runTestMethod(run.className, methodName));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The test methods to run from a single test class.
+     */
+    @OnThread(Tag.Any)
+    private static class TestClassRun
+    {
+        private final String className;
+        private final List<String> methodNames;
+
+        private TestClassRun(String className, List<String> methodNames)
+        {
+            this.className = className;
+            this.methodNames = methodNames;
+        }
+    }
+
+    /**
+     * A thread which starts a worker VM, and runs tests in it until there are no
+     * more to run.
+     */
+    class TestWorkerThread extends Thread
+    {
+        private final Queue<TestClassRun> queue;
+        private final URL[] classpath;
+        private final URL[] workerLibraries;
+        private final Consumer<DebuggerTestResult> resultListener;
+
+        @OnThread(Tag.Any)
+        TestWorkerThread(Queue<TestClassRun> queue, URL[] classpath, URL[] libraries,
+                Consumer<DebuggerTestResult> resultListener)
+        {
+            this.queue = queue;
+            this.classpath = classpath;
+            this.workerLibraries = libraries;
+            this.resultListener = resultListener;
+        }
+
+        @OnThread(value = Tag.Unique, ignoreParent = true)
+        public void run()
+        {
+            VMReference vm;
+            try {
+                // A standby VM is never activated, so the debugger doesn't see its threads:
+                vm = new VMReference(JdiDebugger.this, terminal, startingDirectory, workerLibraries, true);
+            }
+            catch (JdiVmCreationException e) {
+                Debug.message("Could not start test worker VM");
+                return;
+            }
+            
+            // Register the VM, so that a reset of the debug VM closes it:
+            synchronized (testWorkerVMs) {
+                if (testWorkersStopped) {
+                    vm.close();
+                    return;
+                }
+                testWorkerVMs.add(vm);
+            }
+            
+            try {
+                vm.newClassLoader(classpath);
+                vm.setRunOnThread(runOnThread);
+
+                TestClassRun run;
+                while (! testWorkersStopped() && (run = queue.poll()) != null) {
+                    for (int i = 0; i < run.methodNames.size(); i++) {
+                        String methodName = run.methodNames.get(i);
+                        DebuggerTestResult result;
+                        try {
+                            result = makeTestResult(run.className, methodName,
+                                    (ArrayReference) vm.invokeRunTest(run.className, methodName));
+                        }
+                        catch (InvocationException ie) {
+                            result = new JdiTestResultError(run.className, methodName, "Internal invocation error", "", null, 0);
+                        }
+                        catch (VMDisconnectedException vmde) {
+                            if (testWorkersStopped()) {
+                                resultListener.accept(new JdiTestResultError(run.className, methodName, "VM restarted", "", null, 0));
+                                return;
+                            }
+                            resultListener.accept(new JdiTestResultError(run.className, methodName, "VM terminated", "", null, 0));
+                            // Leave the rest of the class for another worker:
+                            List<String> rest = run.methodNames.subList(i + 1, run.methodNames.size());
+                            if (! rest.isEmpty()) {
+                                queue.add(new TestClassRun(run.className, rest));
+                            }
+                            return;
+                        }
+                        resultListener.accept(result);
+                    }
+                }
+            }
+            finally {
+                synchronized (testWorkerVMs) {
+                    testWorkerVMs.remove(vm);
+                }
+                vm.close();
+            }
+        }
+    }
+
     /**
      * Dispose all top level windows in the remote machine.
      */
@@ -638,11 +906,19 @@ public class JdiDebugger extends Debugger
     @OnThread(Tag.Any)
     public FXPlatformSupplier<DebuggerResult> runClassMain(String className)
         throws ClassNotFoundException
+    {
+        return runClassMain(className, null);
+    }
+    
+    @Override
+    @OnThread(Tag.Any)
+    public FXPlatformSupplier<DebuggerResult> runClassMain(String className, Map<String, byte[]> classFiles)
+        throws ClassNotFoundException
     {
         VMReference vmr = getVM();
         synchronized (serverThreadLock) {
             if (vmr != null) {
-                return vmr.runShellClass(className);
+                return vmr.runShellClass(className, classFiles);
             }
             else {
                 return null;
@@ -701,6 +977,22 @@ public class JdiDebugger extends Debugger
         }
     }
     
+    @Override
+    @OnThread(Tag.Any)
+    public FXPlatformSupplier<DebuggerResult> invokeDirect(String className, String methodName,
+            String[] paramTypes, String scopeId, String targetName, String[] args)
+    {
+        VMReference vmr = getVM();
+        if (vmr != null) {
+            synchronized (serverThreadLock) {
+                return vmr.invokeDirect(className, methodName, paramTypes, scopeId, targetName, args);
+            }
+        }
+        else {
+            return () -> new DebuggerResult(Debugger.TERMINATED);
+        }
+    }
+    
     /* (non-Javadoc)
      * @see bluej.debugger.Debugger#instantiateClass(java.lang.String, java.lang.String[], bluej.debugger.DebuggerObject[])
      */
@@ -996,6 +1288,18 @@ public class JdiDebugger extends Debugger
         }
     }
 
+    /**
+     * Called by VMReference when a standby machine disconnects (before it has been
+     * activated).
+     */
+    @OnThread(Tag.Any)
+    synchronized void standbyVMDisconnected(VMReference vm)
+    {
+        if (standbyVM == vm) {
+            standbyVM = null;
+        }
+    }
+
     /**
      * Called by VMReference when a thread is started in the debugger VM.
      * 
@@ -1073,7 +1377,14 @@ public class JdiDebugger extends Debugger
         public void run()
         {
             try {
-                VMReference newVM = new VMReference(JdiDebugger.this, terminal, startingDirectory, libraries);
+                VMReference newVM = takeStandbyVM();
+                if (newVM != null && ! newVM.activate()) {
+                    // The standby VM has gone away:
+                    newVM = null;
+                }
+                if (newVM == null) {
+                    newVM = new VMReference(JdiDebugger.this, terminal, startingDirectory, libraries);
+                }
 
                 BPClassLoader lastLoader;
                 synchronized(JdiDebugger.this) {
@@ -1093,6 +1404,9 @@ public class JdiDebugger extends Debugger
                 synchronized(JdiDebugger.this) {
                     vmRef = newVM;
                 }
+                
+                // Get a replacement ready for the next restart:
+                startStandbyVM();
             }
             catch (JdiVmCreationException e) {
                 raiseStateChangeEvent(Debugger.LAUNCH_FAILED);
@@ -1136,6 +1450,46 @@ public class JdiDebugger extends Debugger
         }
     }
 
+    /**
+     * A thread which starts a standby VM.
+     */
+    class StandbyLoaderThread extends Thread
+    {
+        private final URL[] standbyLibraries;
+
+        @OnThread(Tag.Any)
+        StandbyLoaderThread(URL[] libraries)
+        {
+            this.standbyLibraries = libraries;
+        }
+
+        @OnThread(value = Tag.Unique, ignoreParent = true)
+        public void run()
+        {
+            VMReference newVM = null;
+            try {
+                newVM = new VMReference(JdiDebugger.this, terminal, startingDirectory, standbyLibraries, true);
+            }
+            catch (JdiVmCreationException e) {
+                Debug.message("Could not start standby debug VM");
+            }
+
+            synchronized(JdiDebugger.this) {
+                standbyStarting = false;
+                // Only keep it if it's still wanted, and has the right libraries:
+                if (newVM != null && autoRestart && standbyVM == null
+                        && Arrays.equals(standbyLibraries, libraries)) {
+                    standbyVM = newVM;
+                    newVM = null;
+                }
+            }
+
+            if (newVM != null) {
+                newVM.close();
+            }
+        }
+    }
+
     /**
      * Emit an event (to listeners) due to a thread being halted.
      */
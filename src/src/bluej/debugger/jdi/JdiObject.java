@@ -245,6 +245,12 @@ public class JdiObject extends DebuggerObject
     {
         return null;
     }
+
+    @Override
+    public List<String> getElementValueStrings(int index, int length)
+    {
+        return null;
+    }
     
     @Override
     public ObjectReference getObjectReference()
@@ -32,6 +32,7 @@ import java.io.UnsupportedEncodingException;
 import java.io.Writer;
 import java.net.InetAddress;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -185,10 +186,36 @@ class VMReference
     // the current class loader in the ExecServer
     private ClassLoaderReference currentLoader = null;
 
+    // Mirrors of the classes we have already loaded or found, by the loader they were
+    // loaded with (null for the current loader) and then by name, and of the methods we
+    // have found, by type and then by name. They save a round trip to the remote VM for
+    // each lookup. Cleared when a new loader is created. All protected by mirrorCache:
+    @OnThread(Tag.Any)
+    private final Map<ClassLoaderReference, Map<String, ReferenceType>> mirrorCache = new HashMap<>();
+    @OnThread(Tag.Any)
+    private final Map<ReferenceType, Map<String, Method>> methodCache = new HashMap<>();
+
     private int exitStatus;
     @OnThread(Tag.Any)
     private ExceptionDescription lastException;
 
+    // A standby VM is started in advance, to replace the current VM when that is
+    // restarted, or to run tests alongside it. Until it is activated, its events are
+    // not passed on to the owner and it does not read terminal input. All protected
+    // by standbyLock:
+    @OnThread(Tag.Any)
+    private final Object standbyLock = new Object();
+    @OnThread(Tag.Any)
+    private boolean standby;
+    @OnThread(Tag.Any)
+    private boolean disconnected;
+    // Threads started while in standby, to be reported to the owner on activation
+    @OnThread(Tag.Any)
+    private final List<ThreadReference> standbyThreads = new ArrayList<ThreadReference>();
+    // The input stream of a standby VM, to be connected to the terminal on activation
+    @OnThread(Tag.Any)
+    private Writer standbyInputWriter;
+
     /**
      * Launch a remote debug VM using a TCP/IP socket.
      * 
@@ -571,7 +598,15 @@ class VMReference
         
         errorStreamRedirector = redirectIOStream(errorReader, term.getErrorWriter());
         outputStreamRedirector = redirectIOStream(outReader, term.getWriter());
-        inputStreamRedirector = redirectIOStream(term.getReader(), inputWriter);
+        synchronized (standbyLock) {
+            if (standby) {
+                // Don't take input which is meant for the current VM:
+                standbyInputWriter = inputWriter;
+            }
+            else {
+                inputStreamRedirector = redirectIOStream(term.getReader(), inputWriter);
+            }
+        }
     }
 
     /**
@@ -581,9 +616,25 @@ class VMReference
     @OnThread(Tag.Any)
     public VMReference(JdiDebugger owner, DebuggerTerminal term, File initialDirectory, URL[] libraries)
         throws JdiVmCreationException
+    {
+        this(owner, term, initialDirectory, libraries, false);
+    }
+
+    /**
+     * Create the second virtual machine and start the execution server (class
+     * ExecServer) on that machine, possibly as a standby machine.
+     * 
+     * @param standby  if true, the machine is started in standby: the owner is not
+     *                 told about its events, and it is not connected to terminal
+     *                 input, until activate() is called.
+     */
+    @OnThread(Tag.Any)
+    public VMReference(JdiDebugger owner, DebuggerTerminal term, File initialDirectory, URL[] libraries, boolean standby)
+        throws JdiVmCreationException
     {
         this.owner = owner;
         this.term = term;
+        this.standby = standby;
         
         // machine will be suspended at startup
         machine = localhostSocketLaunch(initialDirectory, libraries, term, Bootstrap.virtualMachineManager());
@@ -595,6 +646,47 @@ class VMReference
         vmToReferenceMap.put(machine, this);
     }
 
+    /**
+     * Activate a standby machine, so that it can take the place of the owner's
+     * previous machine. Threads which were started in the machine, and its idle
+     * state, are reported to the owner, and the machine is connected to terminal input.
+     * 
+     * @return true if the machine was activated, or false if it has already disconnected
+     */
+    @OnThread(Tag.Any)
+    public boolean activate()
+    {
+        synchronized (standbyLock) {
+            if (disconnected) {
+                return false;
+            }
+            if (standby) {
+                standby = false;
+                if (standbyInputWriter != null) {
+                    inputStreamRedirector = redirectIOStream(term.getReader(), standbyInputWriter);
+                    standbyInputWriter = null;
+                }
+                for (ThreadReference thread : standbyThreads) {
+                    owner.threadStart(thread);
+                }
+                standbyThreads.clear();
+            }
+        }
+        owner.raiseStateChangeEvent(Debugger.IDLE);
+        return true;
+    }
+
+    /**
+     * Check whether this is a standby machine (which has not been activated).
+     */
+    @OnThread(Tag.Any)
+    private boolean isStandby()
+    {
+        synchronized (standbyLock) {
+            return standby;
+        }
+    }
+
     /**
      * Wait for all our virtual machine initialisation to occur.
      */
@@ -791,6 +883,7 @@ class VMReference
             workerThreadFinishWait();
             
             currentLoader = (ClassLoaderReference) getStaticFieldObject(serverClass, ExecServer.WORKER_RETURN_NAME);
+            clearMirrorCache();
             workerThreadReserved = false;
             workerThread.notify();
             
@@ -836,6 +929,11 @@ class VMReference
      */
     ReferenceType loadClass(String className, ClassLoaderReference clr)
     {
+        ReferenceType cached = getCachedClass(clr, className);
+        if (cached != null) {
+            return cached;
+        }
+        
         synchronized(workerThread) {
             workerThreadReadyWait();
             workerThreadReserved = true;
@@ -855,7 +953,44 @@ class VMReference
                 return null;
             }
             
-            return robject.reflectedType();
+            ReferenceType loaded = robject.reflectedType();
+            cacheClass(clr, className, loaded);
+            return loaded;
+        }
+    }
+    
+    /**
+     * Get the cached mirror of a class loaded with the given loader (null for the
+     * current project loader), or null if it is not cached.
+     */
+    @OnThread(Tag.Any)
+    private ReferenceType getCachedClass(ClassLoaderReference clr, String className)
+    {
+        synchronized (mirrorCache) {
+            Map<String, ReferenceType> classes = mirrorCache.get(clr);
+            return (classes == null) ? null : classes.get(className);
+        }
+    }
+    
+    @OnThread(Tag.Any)
+    private void cacheClass(ClassLoaderReference clr, String className, ReferenceType type)
+    {
+        synchronized (mirrorCache) {
+            mirrorCache.computeIfAbsent(clr, k -> new HashMap<>()).put(className, type);
+        }
+    }
+    
+    /**
+     * Forget all cached class and method mirrors. Must be called when a new project
+     * class loader is created (since the classes loaded with the old one are no
+     * longer current) and when the VM goes away.
+     */
+    @OnThread(Tag.Any)
+    private void clearMirrorCache()
+    {
+        synchronized (mirrorCache) {
+            mirrorCache.clear();
+            methodCache.clear();
         }
     }
     
@@ -909,11 +1044,12 @@ class VMReference
      *            the class loader to use
      * @param classname
      *            the class to start
-     * @param eventParam
-     *            when a BlueJEvent is generated for a breakpoint, this
-     *            parameter is passed as the event parameter
+     * @param classFiles
+     *            the class files of the shell class and its inner classes, as
+     *            a map from binary class name to contents, or null if the class
+     *            files are in the package directory
      */
-    public FXPlatformSupplier<DebuggerResult> runShellClass(String className)
+    public FXPlatformSupplier<DebuggerResult> runShellClass(String className, Map<String, byte[]> classFiles)
     {
         // Calls to this method are protected by serverThreadLock in JdiDebugger
         
@@ -924,6 +1060,8 @@ class VMReference
 
             serverThreadStartWait();
             
+            setShellClassFiles(classFiles);
+            
             // Store the class and method to call
             setStaticFieldObject(serverClass, ExecServer.CLASS_TO_RUN_NAME, className);
             setStaticFieldValue(serverClass, ExecServer.EXEC_ACTION_NAME, machine.mirrorOf(ExecServer.EXEC_SHELL));
@@ -961,6 +1099,46 @@ class VMReference
         return () -> new DebuggerResult(lastException);
     }
     
+    /**
+     * Supply the class files of a shell class (compiled in memory) to the server
+     * thread, or clear them if classFiles is null. The class files are passed as
+     * strings, one character per byte, which is much cheaper than mirroring each
+     * byte of an array.
+     */
+    private void setShellClassFiles(Map<String, byte[]> classFiles)
+        throws ClassNotFoundException, ClassNotLoadedException, InvalidTypeException
+    {
+        if (classFiles == null) {
+            setStaticFieldValue(serverClass, ExecServer.SHELL_CLASS_NAMES_NAME, null);
+            setStaticFieldValue(serverClass, ExecServer.SHELL_CLASS_FILES_NAME, null);
+            return;
+        }
+        
+        String [] names = new String[classFiles.size()];
+        String [] contents = new String[classFiles.size()];
+        int i = 0;
+        for (Map.Entry<String, byte[]> entry : classFiles.entrySet()) {
+            names[i] = entry.getKey();
+            contents[i] = new String(entry.getValue(), StandardCharsets.ISO_8859_1);
+            i++;
+        }
+        
+        // See invokeConstructor(...) regarding garbage collection of the arrays
+        ArrayType stringArray = (ArrayType) loadClass("[Ljava.lang.String;");
+        machine.suspend();
+        try {
+            ArrayReference namesArray = newStringArray(stringArray, names);
+            ArrayReference contentsArray = newStringArray(stringArray, contents);
+            setStaticFieldValue(serverClass, ExecServer.SHELL_CLASS_NAMES_NAME, namesArray);
+            setStaticFieldValue(serverClass, ExecServer.SHELL_CLASS_FILES_NAME, contentsArray);
+            namesArray.enableCollection();
+            contentsArray.enableCollection();
+        }
+        finally {
+            machine.resume();
+        }
+    }
+    
     /**
      * Invoke the default constructor for some class, and return the resulting object.
      */
@@ -1031,6 +1209,124 @@ class VMReference
         }
     }
     
+    /**
+     * Invoke a method or constructor directly, without a shell class. The arguments
+     * are given as strings, in the form described by ExecServer.getArgumentValue().
+     * 
+     * @param className   The class declaring the method or constructor
+     * @param methodName  The method name, or null to invoke a constructor
+     * @param paramTypes  The parameter types (as given by Class.getName())
+     * @param scopeId     The scope (package) in which objects named by the arguments
+     *                    or the target live
+     * @param targetName  The name of the object to invoke an instance method on, or null
+     * @param args        The argument values
+     * @return  For a constructor, the new object. For a method, the result wrapped in
+     *          the same way as for a shell class.
+     */
+    public FXPlatformSupplier<DebuggerResult> invokeDirect(String className, String methodName,
+            String [] paramTypes, String scopeId, String targetName, String [] args)
+    {
+        // Calls to this method are protected by serverThreadLock in JdiDebugger
+        
+        boolean needsMachineResume = false;
+        try {
+            exitStatus = Debugger.NORMAL_EXIT;
+
+            serverThreadStartWait();
+            
+            // Store the parameter types and arguments. See invokeConstructor(...)
+            // regarding garbage collection of the arrays.
+            ArrayType stringArray = (ArrayType) loadClass("[Ljava.lang.String;");
+            machine.suspend();
+            needsMachineResume = true;
+            ArrayReference typesArray = newStringArray(stringArray, paramTypes);
+            ArrayReference argsArray = newStringArray(stringArray, args);
+            setStaticFieldValue(serverClass, ExecServer.PARAMETER_TYPES_NAME, typesArray);
+            setStaticFieldValue(serverClass, ExecServer.INVOKE_ARGUMENTS_NAME, argsArray);
+            typesArray.enableCollection();
+            argsArray.enableCollection();
+            machine.resume();
+            needsMachineResume = false;
+            
+            // Store the class, method, scope and target
+            setStaticFieldObject(serverClass, ExecServer.CLASS_TO_RUN_NAME, className);
+            if (methodName == null) {
+                setStaticFieldValue(serverClass, ExecServer.METHOD_TO_RUN_NAME, null);
+            }
+            else {
+                setStaticFieldObject(serverClass, ExecServer.METHOD_TO_RUN_NAME, methodName);
+            }
+            setStaticFieldObject(serverClass, ExecServer.INVOKE_SCOPE_ID_NAME, scopeId);
+            if (targetName == null) {
+                setStaticFieldValue(serverClass, ExecServer.INVOKE_TARGET_NAME, null);
+            }
+            else {
+                setStaticFieldObject(serverClass, ExecServer.INVOKE_TARGET_NAME, targetName);
+            }
+            setStaticFieldValue(serverClass, ExecServer.EXEC_ACTION_NAME, machine.mirrorOf(ExecServer.INVOKE_DIRECT));
+            
+            // Resume the thread, wait for it to finish and the new thread to start
+            serverThreadStarted = false;
+            resumeServerThread();
+            serverThreadStartWait();
+            
+            // Get return value and check for exceptions
+            ObjectReference rval = getStaticFieldObject(serverClass, ExecServer.METHOD_RETURN_NAME);
+            if (rval == null) {
+                ObjectReference exception = getStaticFieldObject(serverClass, ExecServer.EXCEPTION_NAME);
+                if (exception != null) {
+                    exceptionEvent(new InvocationException(exception));
+                    return () -> new DebuggerResult(lastException);
+                }
+            }
+            
+            return () -> new DebuggerResult(JdiObject.getDebuggerObject(rval));
+        }
+        catch (VMDisconnectedException e) {
+            exitStatus = Debugger.TERMINATED;
+            return () -> new DebuggerResult(exitStatus);
+        }
+        catch (Exception e) {
+            // remote invocation failed
+            Debug.reportError("direct invocation failed: " + e);
+            e.printStackTrace();
+            exitStatus = Debugger.EXCEPTION;
+            lastException = new ExceptionDescription("Internal BlueJ error: unexpected exception in remote VM\n" + e);
+        }
+        finally {
+            if (needsMachineResume) {
+                machine.resume();
+            }
+        }
+        
+        return () -> new DebuggerResult(lastException);
+    }
+    
+    /**
+     * Create a string array in the remote VM. The array is protected from garbage
+     * collection; the caller must re-enable collection once the array is referenced
+     * from somewhere. The machine should be suspended.
+     */
+    private ArrayReference newStringArray(ArrayType stringArray, String [] values)
+        throws ClassNotLoadedException, InvalidTypeException
+    {
+        ArrayReference array = stringArray.newInstance(values.length);
+        while (true) {
+            try {
+                array.disableCollection();
+                break;
+            }
+            catch (ObjectCollectedException oce) {
+                array = stringArray.newInstance(values.length);
+            }
+        }
+        
+        for (int i = 0; i < values.length; i++) {
+            array.setValue(i, machine.mirrorOf(values[i]));
+        }
+        return array;
+    }
+    
     /**
      * Emit a thread halted/resumed event for the given thread.
      */
@@ -1073,10 +1369,21 @@ class VMReference
     public void vmDisconnectEvent()
     {
         synchronized (this) {
+            boolean wasStandby;
+            synchronized (standbyLock) {
+                wasStandby = standby;
+                disconnected = true;
+            }
+
             // Do the owner disconnect first, because it is synchronized on
             // JdiDebugger. This allows machine loader thread to check the exit
             // status in a meaningful way.
-            owner.vmDisconnect();
+            if (wasStandby) {
+                owner.standbyVMDisconnected(this);
+            }
+            else {
+                owner.vmDisconnect();
+            }
             
             // If VM disconnect occurs during invocation, the server thread won't
             // restart in this VM; the method waiting for it to start will hang
@@ -1097,6 +1404,8 @@ class VMReference
         synchronized (vmToReferenceMap) {
             vmToReferenceMap.remove(machine);
         }
+        
+        clearMirrorCache();
     }
 
     /**
@@ -1104,6 +1413,12 @@ class VMReference
      */
     public void threadStartEvent(ThreadStartEvent tse)
     {
+        synchronized (standbyLock) {
+            if (standby) {
+                standbyThreads.add(tse.thread());
+                return;
+            }
+        }
         owner.threadStart(tse.thread());
     }
 
@@ -1113,6 +1428,12 @@ class VMReference
     public void threadDeathEvent(ThreadDeathEvent tde)
     {
         ThreadReference tr = tde.thread();
+        synchronized (standbyLock) {
+            if (standby) {
+                standbyThreads.remove(tr);
+                return;
+            }
+        }
         owner.threadDeath(tr);
 
         // There appears to be a VM bug related to system.exit() being called
@@ -1254,7 +1575,10 @@ class VMReference
             synchronized (this) {
                 serverThreadStarted = true;
                 serverThread = event.thread();
-                owner.raiseStateChangeEvent(Debugger.IDLE);
+                // A standby machine reports that it is idle when it is activated:
+                if (! isStandby()) {
+                    owner.raiseStateChangeEvent(Debugger.IDLE);
+                }
                 notifyAll();
             }
         }
@@ -1704,8 +2028,10 @@ class VMReference
     {
         synchronized (eventHandler) {
             serverThread.resume();
-            owner.serverThreadResumed(serverThread);
-            owner.raiseStateChangeEvent(Debugger.RUNNING);
+            if (! isStandby()) {
+                owner.serverThreadResumed(serverThread);
+                owner.raiseStateChangeEvent(Debugger.RUNNING);
+            }
         }
         // Note, we do the state change after the resume because the state
         // change may throw VMDisconnectedException (in which case we don't
@@ -2190,6 +2516,13 @@ class VMReference
     public ReferenceType findClassByName(String className)
         throws ClassNotFoundException
     {
+        // A class already loaded with the current loader is the one we want. Other
+        // results aren't cached, since a class with the same name may later be loaded
+        // with the current loader:
+        ReferenceType cached = getCachedClass(null, className);
+        if (cached != null) {
+            return cached;
+        }
         return findClassByName(className, currentLoader);
     }
 
@@ -2201,12 +2534,24 @@ class VMReference
      */
     Method findMethodByName(ReferenceType type, String methodName)
     {
+        synchronized (mirrorCache) {
+            Map<String, Method> methods = methodCache.get(type);
+            Method method = (methods == null) ? null : methods.get(methodName);
+            if (method != null) {
+                return method;
+            }
+        }
+        
         List<Method> list = type.methodsByName(methodName);
         if (list.size() != 1) {
             throw new IllegalArgumentException("getting method " + methodName + " resulted in " + list.size()
                     + " methods");
         }
-        return (Method) list.get(0);
+        Method method = list.get(0);
+        synchronized (mirrorCache) {
+            methodCache.computeIfAbsent(type, k -> new HashMap<>()).put(methodName, method);
+        }
+        return method;
     }
 
     /**
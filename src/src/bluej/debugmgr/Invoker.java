@@ -43,6 +43,7 @@ import bluej.debugmgr.objectbench.ObjectWrapper;
 import bluej.pkgmgr.Package;
 import bluej.pkgmgr.PkgMgrFrame;
 import bluej.pkgmgr.Project;
+import bluej.runtime.ExecServer;
 import bluej.runtime.Shell;
 import bluej.testmgr.record.ConstructionInvokerRecord;
 import bluej.testmgr.record.ExpressionInvokerRecord;
@@ -71,12 +72,15 @@ import java.io.FileOutputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 /**
  * Debugger class that arranges invocation of constructors or methods. This
@@ -119,6 +123,8 @@ public class Invoker
     private ResultWatcher watcher;
     private final CallableView member;
     private String shellName;
+    /** The class files of the shell class, if it was compiled in memory (null otherwise) */
+    private Map<String, byte[]> shellClassFiles;
     /** Name of the result object */
     @OnThread(Tag.Any)
     private String objName;
@@ -299,6 +305,15 @@ public class Invoker
                 JobQueue.getJobQueue().addJob(wrapped.toArray(new CompileInputFile[0]), observer, project.getClassLoader(),
                         project.getProjectDir(), true, project.getProjectCharset(), CompileReason.INVOKE, CompileType.INTERNAL_COMPILE);
             }
+            
+            @Override
+            public boolean compileInMemory(File file, String source, CompileObserver observer, Map<String, byte[]> classFiles)
+            {
+                Project project = pkg.getProject();
+                JobQueue.getJobQueue().addMemoryJob(new CompileInputFile(file, file), source, observer, project.getClassLoader(),
+                        project.getProjectDir(), project.getProjectCharset(), CompileReason.INVOKE, classFiles);
+                return true;
+            }
         };
         this.sourceCharset = pmf.getProject().getProjectCharset();
         this.pmf = pmf;
@@ -513,6 +528,7 @@ public class Invoker
             }
         }
 
+        String [] directArgs;
         if (constructing && member.getParameterCount() == 0 && (typeParams == null || typeParams.length == 0)) {
             // Special case for construction of a class using the default constructor.
             // We can do this without writing and compiling a shell file.
@@ -539,20 +555,264 @@ public class Invoker
                 }
             }.start();
         }
+        else if ((directArgs = getDirectArguments(args, typeParams)) != null) {
+            // The arguments are all simple values or object bench objects, so
+            // the call can also be made without a shell file.
+            commandString = command + actualArgString;
+            startDirectCall(directArgs);
+        }
         else {
             if (isVoid)
                 argString += ';';
             
             watcher.beginCompile();
-            File shell = writeInvocationFile(paramInit, command + argString, isVoid, constype);
-            if (shell != null) {
-                commandString = command + actualArgString;
-                compileInvocationFile(shell);
+            commandString = command + actualArgString;
+            String shellSource = getShellSource(paramInit, command + argString, isVoid, constype);
+            if (! compileShell(shellSource)) {
+                endCompile(new CompileInputFile[0], false, CompileType.INTERNAL_COMPILE, -1);
+            }
+        }
+    }
+
+    /**
+     * Invoke the method or constructor directly, without writing and compiling a
+     * shell file.
+     * 
+     * @param directArgs  the arguments, as returned by getDirectArguments()
+     */
+    private void startDirectCall(String [] directArgs)
+    {
+        final String className;
+        final String methodName;
+        final String targetName;
+        if (constructing) {
+            className = member.getClassName();
+            methodName = null;
+            targetName = null;
+        }
+        else {
+            Method method = ((MethodView) member).getMethod();
+            className = method.getDeclaringClass().getName();
+            methodName = method.getName();
+            targetName = Modifier.isStatic(method.getModifiers()) ? null : instanceName;
+        }
+        
+        Class<?> [] params = member.getParameters();
+        final String [] paramTypes = new String[params.length];
+        for (int i = 0; i < params.length; i++) {
+            paramTypes[i] = params[i].getName();
+        }
+
+        watcher.beginCompile(); // there is no compile step, really
+        watcher.beginExecution(ir);
+        
+        // As for the default constructor, we must use a separate thread.
+        new Thread() {
+            @OnThread(Tag.Unique)
+            public void run() {
+                Platform.runLater(Invoker.this::closeCallDialog);
+                
+                final FXPlatformSupplier<DebuggerResult> result = debugger.invokeDirect(className, methodName,
+                        paramTypes, pkgScopeId, targetName, directArgs);
+
+                Platform.runLater(() -> {
+                    handleResult(result.get(), false); // handles error situations
+                });
+            }
+        }.start();
+    }
+
+    /**
+     * Check whether an invocation can be made directly, without a shell file. That is
+     * the case when the member is accessible and non-generic, and each argument is
+     * null, a simple literal, or the name of an object on the object bench. The
+     * arguments must also be of a type the compiler would accept for the parameter:
+     * anything more complicated is left to the compiler, so that errors are reported
+     * in the usual way.
+     * 
+     * @return  the arguments in the form used by ExecServer.INVOKE_DIRECT, or null
+     *          if the invocation can't be made directly.
+     */
+    private String [] getDirectArguments(String [] args, String [] typeParams)
+    {
+        if (codepad || localVars != null || member.isGeneric() || member.isVarArgs()
+                || (typeParams != null && typeParams.length != 0)) {
+            return null;
+        }
+        
+        // The member must be accessible from the shell class (in package pkgName):
+        Class<?> declaringClass = member.getDeclaringView().getViewClass();
+        int modifiers = member.getModifiers();
+        if (Modifier.isPrivate(modifiers) || Modifier.isPrivate(declaringClass.getModifiers())) {
+            return null;
+        }
+        if (! member.getDeclaringView().getPackageName().equals(pkgName)
+                && ! (Modifier.isPublic(modifiers) && Modifier.isPublic(declaringClass.getModifiers()))) {
+            return null;
+        }
+        
+        if (constructing) {
+            if (Modifier.isAbstract(declaringClass.getModifiers()) || (declaringClass.getEnclosingClass() != null
+                    && ! Modifier.isStatic(declaringClass.getModifiers()))) {
+                return null;
+            }
+        }
+        else if (! ((MethodView) member).isStatic() && findBenchValue(instanceName) == null) {
+            return null;
+        }
+        
+        Class<?> [] params = member.getParameters();
+        JavaType [] paramTypes = member.getParamTypes(false);
+        JavaType [] rawParamTypes = member.getParamTypes(true);
+        int numArgs = args == null ? 0 : args.length;
+        if (params.length != numArgs || paramTypes.length != numArgs || rawParamTypes.length != numArgs) {
+            return null;
+        }
+        
+        String [] directArgs = new String[numArgs];
+        for (int i = 0; i < numArgs; i++) {
+            String arg = args[i].trim();
+            if (params[i].isPrimitive()) {
+                String value = getPrimitiveValue(params[i], arg);
+                if (value == null) {
+                    return null;
+                }
+                directArgs[i] = ExecServer.ARG_PRIMITIVE + value;
+                continue;
+            }
+            
+            // For a parameterized type, leave checking to the compiler:
+            if (! paramTypes[i].toString().equals(rawParamTypes[i].toString())) {
+                return null;
+            }
+            
+            if (arg.equals("null")) {
+                directArgs[i] = String.valueOf(ExecServer.ARG_NULL);
+            }
+            else if (isSimpleStringLiteral(arg) && params[i].isAssignableFrom(String.class)) {
+                directArgs[i] = ExecServer.ARG_STRING + arg.substring(1, arg.length() - 1);
             }
             else {
-                endCompile(new CompileInputFile[0], false, CompileType.INTERNAL_COMPILE, -1);
+                NamedValue value = JavaNames.isIdentifier(arg) ? findBenchValue(arg) : null;
+                if (value == null || ! paramTypes[i].isAssignableFrom(value.getGenType())) {
+                    return null;
+                }
+                directArgs[i] = ExecServer.ARG_OBJECT + arg;
+            }
+        }
+        return directArgs;
+    }
+    
+    /**
+     * Find a value on the object bench (as declared in a shell file) by name.
+     */
+    private NamedValue findBenchValue(String name)
+    {
+        Iterator<? extends NamedValue> i = objectBenchVars.getValueIterator();
+        while (i.hasNext()) {
+            NamedValue value = i.next();
+            if (value.getName().equals(name)) {
+                return value;
+            }
+        }
+        return null;
+    }
+    
+    private static final Pattern INTEGER_LITERAL = Pattern.compile("-?(0|[1-9][0-9]*)");
+    private static final Pattern LONG_LITERAL = Pattern.compile("-?(0|[1-9][0-9]*)[lL]?");
+    private static final Pattern FLOAT_LITERAL = Pattern.compile("-?[0-9]+\\.[0-9]+[fF]");
+    private static final Pattern DOUBLE_LITERAL = Pattern.compile("-?[0-9]+\\.[0-9]+[dD]?");
+    
+    /**
+     * Get the value of a literal argument for a parameter of primitive type, as a
+     * string which ExecServer converts back to the value. Returns null if the
+     * argument isn't a literal, or isn't one which can be assigned to the parameter
+     * type.
+     */
+    private static String getPrimitiveValue(Class<?> type, String arg)
+    {
+        try {
+            if (type == boolean.class) {
+                return (arg.equals("true") || arg.equals("false")) ? arg : null;
+            }
+            else if (type == char.class) {
+                if (arg.length() == 3 && arg.charAt(0) == '\'' && arg.charAt(2) == '\''
+                        && arg.charAt(1) != '\\' && arg.charAt(1) != '\'') {
+                    return arg.substring(1, 2);
+                }
+                return null;
+            }
+            else if (type == long.class) {
+                if (! LONG_LITERAL.matcher(arg).matches()) {
+                    return null;
+                }
+                char last = arg.charAt(arg.length() - 1);
+                if (last == 'l' || last == 'L') {
+                    return Long.toString(Long.parseLong(arg.substring(0, arg.length() - 1)));
+                }
+                return Integer.toString(Integer.parseInt(arg));
+            }
+            else if (type == float.class || type == double.class) {
+                if (INTEGER_LITERAL.matcher(arg).matches()) {
+                    int value = Integer.parseInt(arg);
+                    return type == float.class ? Float.toString(value) : Double.toString(value);
+                }
+                if (type == float.class && FLOAT_LITERAL.matcher(arg).matches()) {
+                    float value = Float.parseFloat(arg);
+                    return isRepresentable(value, arg) ? Float.toString(value) : null;
+                }
+                if (type == double.class && DOUBLE_LITERAL.matcher(arg).matches()) {
+                    double value = Double.parseDouble(arg);
+                    return isRepresentable(value, arg) ? Double.toString(value) : null;
+                }
+                return null;
+            }
+            else if (INTEGER_LITERAL.matcher(arg).matches()) {
+                // byte, short or int. The compiler allows narrowing of a constant
+                // int if it's within range:
+                int value = Integer.parseInt(arg);
+                if (type == byte.class && (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE)) {
+                    return null;
+                }
+                if (type == short.class && (value < Short.MIN_VALUE || value > Short.MAX_VALUE)) {
+                    return null;
+                }
+                return Integer.toString(value);
             }
         }
+        catch (NumberFormatException nfe) {
+            // out of range
+        }
+        return null;
+    }
+    
+    /**
+     * Check that a floating point literal is neither too large nor too small (non-zero
+     * but rounded to zero), which the compiler would report as an error.
+     */
+    private static boolean isRepresentable(double value, String literal)
+    {
+        if (Double.isInfinite(value)) {
+            return false;
+        }
+        return value != 0 || ! literal.matches(".*[1-9].*");
+    }
+    
+    /**
+     * Check whether an argument is a string literal without escape sequences.
+     */
+    private static boolean isSimpleStringLiteral(String arg)
+    {
+        if (arg.length() < 2 || arg.charAt(0) != '"' || arg.charAt(arg.length() - 1) != '"') {
+            return false;
+        }
+        for (int i = 1; i < arg.length() - 1; i++) {
+            char c = arg.charAt(i);
+            if (c == '"' || c == '\\' || c == '\n' || c == '\r') {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -590,10 +850,10 @@ public class Invoker
      * 
      * <p>Invocation here means: construct shell class and compile. The execution
      * is done once we return from compilation (in method "endCompile").
-     * Compilation is done asynchronously by the CompilerThread.
+     * Compilation is done asynchronously on a compiler thread.
      * 
      * <p>This method is still executed in the interface thread, while "endCompile"
-     * will be executed by the CompilerThread.
+     * will be executed on a compiler thread.
      * 
      * @param resultType   the type of the result expressed in Java (eg "int",
      *                     "java.util.ArrayList<String>"). An empty string means
@@ -620,20 +880,12 @@ public class Invoker
             ir = new StatementInvokerRecord(commandString);
         }
 
-        File shell = writeInvocationFile("", commandString, !hasResult, resultType);
-        if (shell != null) {
-            compileInvocationFile(shell);
-            return true;
-        }
-        else {
-            return false;
-        }
+        return compileShell(getShellSource("", commandString, !hasResult, resultType));
     }
 
     /**
-     * Write a source file for a class (the 'shell file') to do the interactive
-     * invocation. Returns the written file, or null if the file cannot be written
-     * (an error dialog will be shown in this case).
+     * Generate the source of a class (the 'shell class') to do the interactive
+     * invocation.
      * 
      * <p>A shell file has, very roughly, the following form:
      * 
@@ -669,7 +921,7 @@ public class Invoker
      *                  cases to yield a more accurate result type (when generic types
      *                  are involved).
      */
-    private File writeInvocationFile(String paramInit, String callString,
+    private String getShellSource(String paramInit, String callString,
             boolean isVoid, String constype)
     {
         // Create package specification line ("package xyz")
@@ -796,44 +1048,54 @@ public class Invoker
         }
         String scopeSave = buffer.toString();
 
-        File shellFile = new File(pkgPath, shellName + ".java");
+        StringBuilder shell = new StringBuilder();
+        shell.append(packageLine);
+        shell.append(Config.nl);
+        if (imports != null) {
+            shell.append(imports);
+            shell.append(Config.nl);
+        }
+        shell.append("public class ");
+        shell.append(shellName);
+        shell.append(" extends bluej.runtime.Shell {");
+        shell.append(Config.nl);
+        shell.append("public static ");
+        if (isVoid) {
+            shell.append("void");
+        }
+        else {
+            shell.append("java.lang.Object");
+        }
+        shell.append(" run() throws Throwable {");
+        shell.append(Config.nl);
+        shell.append(vardecl);
+        shell.append(Config.nl);
+        shell.append(invocation);
+        shell.append(scopeSave);
+        if (! isVoid) {
+            shell.append("}"); // end finally block
+            if (constype != null) {
+                shell.append("} };"); // end block, anonymous inner object
+            }
+        }
+        shell.append(Config.nl);
+        shell.append("}}"); // end method, class
+        shell.append(Config.nl);
+        return shell.toString();
+    }
+    
+    /**
+     * Write the shell class source to a file (the 'shell file') in the package
+     * directory. Returns false if the file cannot be written (an error dialog will
+     * be shown in this case).
+     */
+    private boolean writeShellFile(File shellFile, String source)
+    {
         BufferedWriter shell = null;
         try {
             FileOutputStream fos = new FileOutputStream(shellFile);
             shell = new BufferedWriter(new OutputStreamWriter(fos, sourceCharset));
-
-            shell.write(packageLine);
-            shell.newLine();
-            if (imports != null) {
-                shell.write(imports);
-                shell.newLine();
-            }
-            shell.write("public class ");
-            shell.write(shellName);
-            shell.write(" extends bluej.runtime.Shell {");
-            shell.newLine();
-            shell.write("public static ");
-            if (isVoid) {
-                shell.write("void");
-            }
-            else {
-                shell.write("java.lang.Object");
-            }
-            shell.write(" run() throws Throwable {");
-            shell.newLine();
-            shell.write(vardecl);
-            shell.newLine();
-            shell.write(invocation);
-            shell.write(scopeSave);
-            if (! isVoid) {
-                shell.write("}"); // end finally block
-                if (constype != null) {
-                    shell.write("} };"); // end block, anonymous inner object
-                }
-            }
-            shell.newLine();
-            shell.write("}}"); // end method, class
-            shell.newLine();
+            shell.write(source);
             shell.close();
         }
         catch (IOException e) {
@@ -845,9 +1107,9 @@ public class Invoker
                 catch (IOException ioe) {}
             }
             shellFile.delete();
-            return null;
+            return false;
         }
-        return shellFile;
+        return true;
     }
     
     /**
@@ -1017,13 +1279,31 @@ public class Invoker
     }
 
     /**
-     * Start the compilation of a shell fine and register us as a watcher. After
+     * Start the compilation of a shell class and register us as a watcher. After
      * this, we just wait for the callback from the compiler.
+     * 
+     * <p>If the compiler supports it, the source and the resulting class files are
+     * held in memory, and the class files are passed directly to the debug VM.
+     * Otherwise the source is written to a shell file in the package directory.
+     * 
+     * @return false if the shell file could not be written (an error dialog will
+     *         be shown in this case).
      */
-    private void compileInvocationFile(File shellFile)
+    private boolean compileShell(String source)
     {
+        File shellFile = new File(pkgPath, shellName + ".java");
+        Map<String, byte[]> classFiles = new HashMap<String, byte[]>();
+        if (compiler.compileInMemory(shellFile, source, new EventqueueCompileObserverAdapter(this), classFiles)) {
+            shellClassFiles = classFiles;
+            return true;
+        }
+        
+        if (! writeShellFile(shellFile, source)) {
+            return false;
+        }
         File[] files = {shellFile};
         compiler.compile(files, new EventqueueCompileObserverAdapter(this));
+        return true;
     }
 
     // -- CompileObserver interface --
@@ -1125,6 +1405,11 @@ public class Invoker
      */
     private void deleteShellFiles()
     {
+        if (shellClassFiles != null) {
+            // Compiled in memory; there are no files
+            return;
+        }
+        
         File srcFile = new File(pkgPath, shellName + ".java");
         srcFile.delete();
 
@@ -1158,7 +1443,9 @@ public class Invoker
         new Thread() {
             public void run() {
                 try {
-                    final FXPlatformSupplier<DebuggerResult> result = debugger.runClassMain(shellClassName);
+                    final FXPlatformSupplier<DebuggerResult> result = shellClassFiles == null
+                            ? debugger.runClassMain(shellClassName)
+                            : debugger.runClassMain(shellClassName, shellClassFiles);
                     
                     Platform.runLater(new Runnable() {
                         public void run() {
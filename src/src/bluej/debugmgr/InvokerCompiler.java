@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2010,2017  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -22,6 +22,7 @@
 package bluej.debugmgr;
 
 import java.io.File;
+import java.util.Map;
 
 import bluej.compiler.CompileObserver;
 
@@ -33,4 +34,22 @@ import bluej.compiler.CompileObserver;
 public interface InvokerCompiler
 {
     void compile(File [] files, CompileObserver observer);
+    
+    /**
+     * Compile a single source held in memory, holding the class files in memory
+     * too. Compilers which can't do this return false, in which case the source
+     * will be written to the given file and compiled with compile().
+     * 
+     * @param file        The file which the source would have
+     * @param source      The source code
+     * @param observer    The compilation observer
+     * @param classFiles  A map into which the class files are put (binary class
+     *                    name to class file contents) before the observer is told
+     *                    that a successful compilation has ended
+     * @return  true if compilation has been started
+     */
+    default boolean compileInMemory(File file, String source, CompileObserver observer, Map<String, byte[]> classFiles)
+    {
+        return false;
+    }
 }
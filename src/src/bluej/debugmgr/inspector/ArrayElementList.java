@@ -0,0 +1,95 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2016  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.debugmgr.inspector;
+
+import java.util.List;
+
+import javafx.collections.ObservableListBase;
+
+import bluej.debugger.DebuggerObject;
+import bluej.utility.GeneralCache;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * The rows shown when inspecting an array: the array length, followed by each of the
+ * elements.
+ *
+ * <p>Element values are only fetched from the debug VM when a row is actually asked for
+ * (i.e. when it is scrolled into view), a page of elements at a time.  Fetched pages
+ * are cached, so the list shows the values as they were when it was created; a new list
+ * should be created whenever the debug VM has run.
+ */
+@OnThread(Tag.FXPlatform)
+class ArrayElementList extends ObservableListBase<FieldInfo>
+{
+    /** The number of elements fetched from the debug VM at once */
+    private static final int PAGE_SIZE = 256;
+    /** The number of pages to keep */
+    private static final int CACHED_PAGES = 64;
+
+    private final DebuggerObject array;
+    private final int elementCount;
+    private final GeneralCache<Integer, List<String>> pages = new GeneralCache<>(CACHED_PAGES);
+
+    /**
+     * Construct a list of the elements of the given array.
+     */
+    ArrayElementList(DebuggerObject array)
+    {
+        this.array = array;
+        this.elementCount = array.getElementCount();
+    }
+
+    @Override
+    public FieldInfo get(int row)
+    {
+        if (row == 0) {
+            // mimic the public length field that arrays possess
+            // according to the java spec...
+            return new FieldInfo("int length", "" + elementCount);
+        }
+        int index = row - 1;
+        if (index < 0 || index >= elementCount) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size());
+        }
+        return new FieldInfo("[" + index + "]", getValueString(index));
+    }
+
+    private String getValueString(int index)
+    {
+        int page = index / PAGE_SIZE;
+        List<String> values = pages.get(page);
+        if (values == null) {
+            int start = page * PAGE_SIZE;
+            values = array.getElementValueStrings(start, Math.min(PAGE_SIZE, elementCount - start));
+            pages.put(page, values);
+        }
+        return values.get(index % PAGE_SIZE);
+    }
+
+    @Override
+    public int size()
+    {
+        return elementCount + 1;
+    }
+}
@@ -27,6 +27,7 @@ import javafx.beans.binding.Bindings;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.beans.property.SimpleBooleanProperty;
+import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
 import javafx.scene.control.Label;
 import javafx.scene.control.SelectionMode;
@@ -73,7 +74,7 @@ public class FieldList extends TableView<FieldInfo>
         this.setColumnResizePolicy(CONSTRAINED_RESIZE_POLICY);
         int rowHeight = 30;
         this.setFixedCellSize(rowHeight);
-        prefHeightProperty().bind(Bindings.min(400.0, fixedCellSizeProperty().multiply(Bindings.size(getItems())).add(JavaFXUtil.ofD(paddingProperty(), Insets::getTop)).add(JavaFXUtil.ofD(paddingProperty(), Insets::getBottom))));
+        bindPrefHeight();
         setMinHeight(3.5 * (double)rowHeight);
         setMinWidth(350.0);
         JavaFXUtil.addStyleClass(this, "field-list");
@@ -110,7 +111,22 @@ public class FieldList extends TableView<FieldInfo>
      */
     public void setData(List<FieldInfo> listData)
     {
-        getItems().setAll(listData);        
+        if (listData instanceof ObservableList)
+        {
+            // Use it directly; it may be a very large list whose items are only
+            // created as they are shown (see ArrayElementList):
+            setItems((ObservableList<FieldInfo>) listData);
+            bindPrefHeight();
+        }
+        else
+        {
+            getItems().setAll(listData);
+        }
+    }
+
+    private void bindPrefHeight()
+    {
+        prefHeightProperty().bind(Bindings.min(400.0, fixedCellSizeProperty().multiply(Bindings.size(getItems())).add(JavaFXUtil.ofD(paddingProperty(), Insets::getTop)).add(JavaFXUtil.ofD(paddingProperty(), Insets::getBottom))));
     }
 
     /**
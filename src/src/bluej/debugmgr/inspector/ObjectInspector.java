@@ -23,7 +23,6 @@ package bluej.debugmgr.inspector;
 
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 
@@ -54,7 +53,6 @@ import bluej.testmgr.record.ArrayElementInspectorRecord;
 import bluej.testmgr.record.GetInvokerRecord;
 import bluej.testmgr.record.InvokerRecord;
 import bluej.testmgr.record.ObjectInspectInvokerRecord;
-import bluej.utility.DialogManager;
 import bluej.utility.JavaNames;
 import bluej.utility.javafx.JavaFXUtil;
 import threadchecker.OnThread;
@@ -88,20 +86,8 @@ public class ObjectInspector extends Inspector
      */
     protected String objName;
 
-    protected boolean queryArrayElementSelected = false;
     private int selectedIndex;
 
-    /**
-     * array of Integers representing the array indexes from a large array that
-     * have been selected for viewing
-     */
-    //protected TreeSet arraySet = null;
-
-    /**
-     * list which is built when viewing an array that records the object slot
-     * corresponding to each array index
-     */
-    protected List<Integer> indexToSlotList = null;
     private StackPane stackPane;
 
     /**
@@ -230,10 +216,10 @@ public class ObjectInspector extends Inspector
     @OnThread(Tag.FXPlatform)
     protected List<FieldInfo> getListData()
     {
-        // if is an array (we potentially will compress the array if it is
-        // large)
+        // if is an array, the element values are only fetched as they are
+        // shown, so that large arrays can be inspected
         if (obj.isArray()) {
-            return compressArrayList(obj);
+            return new ArrayElementList(obj);
         }
         else {
             List<DebuggerField> fields = obj.getFields();
@@ -261,46 +247,30 @@ public class ObjectInspector extends Inspector
             return;
         }
         
-        // add index to slot method for truncated arrays
         if (obj.isArray()) {
-            slot = indexToSlot(slot);
-            if (slot >= 0) {
-                selectedIndex = slot;
-            }
             // if selection is the first field containing array length
             // we treat as special case and do nothing more
-            if (slot == ARRAY_LENGTH_SLOT_VALUE) {
+            if (slot == 0) {
                 setCurrentObj(null, null, null);
                 setButtonsEnabled(false, false);
                 return;
             }
 
-            queryArrayElementSelected = (slot == (ARRAY_QUERY_SLOT_VALUE));
-            // for array compression..
-            if (queryArrayElementSelected) { // "..." in Array inspector
-                setCurrentObj(null, null, null); //  selected
-                if (! obj.getElementType().isPrimitive()) {
-                    setButtonsEnabled(true, false);
-                }
-                else {
-                    setButtonsEnabled(false, false);
+            // the elements follow the length
+            slot--;
+            selectedIndex = slot;
+            if (!obj.getElementType().isPrimitive()) {
+                DebuggerObject elementObj = obj.getElementObject(slot);
+                if (! elementObj.isNullObject()) {
+                    setCurrentObj(elementObj, "[" + slot + "]", obj.getElementType().toString());
+                    setButtonsEnabled(true, true);
+                    return;
                 }
             }
-            else {
-                if (!obj.getElementType().isPrimitive()) {
-                    DebuggerObject elementObj = obj.getElementObject(slot);
-                    if (! elementObj.isNullObject()) {
-                        setCurrentObj(elementObj, "[" + slot + "]", obj.getElementType().toString());
-                        setButtonsEnabled(true, true);
-                        return;
-                    }
-                }
-                
-                // primitive or null
-                setCurrentObj(null, null, null);
-                setButtonsEnabled(false, false);
-            }
             
+            // primitive or null
+            setCurrentObj(null, null, null);
+            setButtonsEnabled(false, false);
             return;
         }
 
@@ -341,10 +311,7 @@ public class ObjectInspector extends Inspector
     @Override
     protected void doInspect()
     {
-        if (queryArrayElementSelected) {
-            selectArrayElement();
-        }
-        else if (selectedField != null) {
+        if (selectedField != null) {
             boolean isPublic = !getButton.isDisable();
             
             if (! obj.isArray()) {
@@ -388,143 +355,6 @@ public class ObjectInspector extends Inspector
         }
     }
 
-    /**
-     * Shows a dialog to select array element for inspection
-     */
-    private void selectArrayElement()
-    {
-        String response = DialogManager.askStringFX(this, "ask-index");
-
-        if (response != null) {
-            try {
-                int slot = Integer.parseInt(response);
-                // check if within bounds of array
-                if (slot >= 0 && slot < obj.getElementCount()) {
-                    // if its an object set as current object
-                    if (! obj.getElementType().isPrimitive() && ! obj.getElementObject(slot).isNullObject()) {
-                        boolean isPublic = !getButton.isDisable();
-                        InvokerRecord newIr = new ArrayElementInspectorRecord(ir, slot);
-                        setCurrentObj(obj.getElementObject(slot), "[" + slot + "]", obj.getElementType().toString());
-                        inspectorManager.getInspectorInstance(selectedField, selectedFieldName, pkg,
-                                isPublic ? newIr : null, this, null);
-                    }
-                    else {
-                        // it is not an object - a primitive, so lets
-                        // just display it in the array list display
-                        setButtonsEnabled(false, false);
-                        //arraySet.add(new Integer(slot));
-                        // TODO: this is currently broken. Primitive array elements re just
-                        //       not displayed right now. Would need to be added to display list.
-                        update();
-                    }
-                }
-                else { // not within array bounds
-                    DialogManager.showErrorFX(this, "out-of-bounds");
-                }
-            }
-            catch (NumberFormatException e) {
-                // input could not be parsed, eg. non integer value
-                setCurrentObj(null, null, null);
-                DialogManager.showErrorFX(this, "cannot-access-element");
-            }
-        }
-        else {
-            // set current object to null to avoid re-inspection of
-            // previously selected wildcard
-            setCurrentObj(null, null, null);
-        }
-    }
-
-    private final static int VISIBLE_ARRAY_START = 40; // show at least the
-                                                       // first 40 elements
-    private final static int VISIBLE_ARRAY_TAIL = 5; // and the last five
-                                                     // elements
-
-    private final static int ARRAY_QUERY_SLOT_VALUE = -2; // signal marker of
-                                                          // the [...] slot in
-                                                          // our
-    private final static int ARRAY_LENGTH_SLOT_VALUE = -1; // marker for having
-                                                           // selected the slot
-                                                           // containing array
-                                                           // length
-
-    /**
-     * Compress a potentially large array into a more displayable shortened
-     * form.
-     * 
-     * Compresses an array field name list to a maximum of VISIBLE_ARRAY_START
-     * which are guaranteed to be displayed at the start, then some [..]
-     * expansion slots, followed by VISIBLE_ARRAY_TAIL elements from the end of
-     * the array. When a selected element is chosen indexToSlot allows the
-     * selection to be converted to the original array element position.
-     * 
-     * @param fullArrayFieldList
-     *            the full field list for an array
-     * @return the compressed array
-     */
-    private List<FieldInfo> compressArrayList(DebuggerObject arrayObject)
-    {
-        // mimic the public length field that arrays possess
-        // according to the java spec...
-        indexToSlotList = new LinkedList<Integer>();
-        indexToSlotList.add(0, new Integer(ARRAY_LENGTH_SLOT_VALUE));
-
-        // the +1 here is due to the fact that if we do not have at least one
-        // more than
-        // the sum of start elements and tail elements, then there is no point
-        // in displaying
-        // the ... elements because there would be no elements for them to
-        // reveal
-        if (arrayObject.getElementCount() > (VISIBLE_ARRAY_START + VISIBLE_ARRAY_TAIL + 2)) {
-
-            // the destination list
-            List<FieldInfo> newArray = new ArrayList<FieldInfo>(2 + VISIBLE_ARRAY_START + VISIBLE_ARRAY_TAIL);
-            newArray.add(0, new FieldInfo("int length", "" + arrayObject.getElementCount()));
-            for (int i = 0; i <= VISIBLE_ARRAY_START; i++) {
-                // first 40 elements are displayed as per normal
-                newArray.add(new FieldInfo("[" + i + "]", arrayObject.getElementValueString(i)));
-                indexToSlotList.add(i);
-            }
-
-            // now the first of our expansion slots
-            newArray.add(new FieldInfo("[...]", ""));
-            indexToSlotList.add(new Integer(ARRAY_QUERY_SLOT_VALUE));
-
-            for (int i = VISIBLE_ARRAY_TAIL; i > 0; i--) {
-                // last 5 elements are displayed
-                int elNum = arrayObject.getElementCount() - i;
-                newArray.add(new FieldInfo("[" + elNum + "]", arrayObject.getElementValueString(elNum)));
-                indexToSlotList.add(arrayObject.getElementCount() - i);
-            }
-            return newArray;
-        }
-        else {
-            List<FieldInfo> fullArrayFieldList = new ArrayList<FieldInfo>(arrayObject.getElementCount() + 1);
-            fullArrayFieldList.add(0, new FieldInfo("int length", "" + arrayObject.getElementCount()));
-            
-            for (int i = 0; i < arrayObject.getElementCount(); i++) {
-                fullArrayFieldList.add(new FieldInfo("[" + i + "]", arrayObject.getElementValueString(i)));
-                indexToSlotList.add(i);
-            }
-            return fullArrayFieldList;
-        }
-    }
-
-    /**
-     * Converts list index position to that of array element position in arrays.
-     * Uses the List built in compressArrayList to do the mapping.
-     * 
-     * @param listIndexPosition
-     *            the position selected in the list
-     * @return the translated index of field array element
-     */
-    private int indexToSlot(int listIndexPosition)
-    {
-        Integer slot = indexToSlotList.get(listIndexPosition);
-
-        return slot.intValue();
-    }
-
     protected int getPreferredRows()
     {
         return 8;
@@ -0,0 +1,165 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2017  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.moe;
+
+import java.util.Arrays;
+
+/**
+ * An index of the start offsets of the lines in a document, which is updated
+ * incrementally as the document is edited rather than being rebuilt from the
+ * document text.
+ *
+ * <p>The line starts are held in a gap buffer. Lines before the gap are stored as
+ * absolute offsets; lines after the gap are stored as their distance from the end
+ * of the document. An edit which doesn't add or remove line breaks therefore only
+ * changes the document length, and an edit which does only needs to move the gap
+ * to the edited line (which is usually where the previous edit was). Looking up
+ * the line containing an offset is a binary search.
+ */
+class LineStartIndex
+{
+    private int[] buf = new int[16];
+    private int gapStart;
+    private int gapEnd;
+    private int docLength;
+
+    /**
+     * Create an index for an empty document (which has a single line, starting at 0).
+     */
+    public LineStartIndex()
+    {
+        buf[0] = 0;
+        gapStart = 1;
+        gapEnd = buf.length;
+        docLength = 0;
+    }
+
+    /**
+     * Get the number of lines in the document.
+     */
+    public int getLineCount()
+    {
+        return gapStart + (buf.length - gapEnd);
+    }
+
+    /**
+     * Get the offset at which the given line (zero-based) starts.
+     */
+    public int getLineStart(int line)
+    {
+        if (line < gapStart) {
+            return buf[line];
+        }
+        return docLength - buf[line + gapEnd - gapStart];
+    }
+
+    /**
+     * Get the offset at which the given line ends, including its terminating line
+     * break if it has one.
+     */
+    public int getLineEnd(int line)
+    {
+        return (line == getLineCount() - 1) ? docLength : getLineStart(line + 1);
+    }
+
+    /**
+     * Get the (zero-based) line containing the given offset.
+     */
+    public int getLineOfOffset(int offset)
+    {
+        int low = 0;
+        int high = getLineCount() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (getLineStart(mid) <= offset) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Update the index to reflect a change in the document.
+     *
+     * @param position  The position of the change
+     * @param removed   The text which was removed at that position
+     * @param inserted  The text which was inserted in its place
+     */
+    public void replace(int position, String removed, String inserted)
+    {
+        int line = getLineOfOffset(position);
+        moveGap(line + 1);
+
+        // Lines whose starts were in the removed text are gone; lines after the removed
+        // text are stored relative to the end of the document, so don't need changing:
+        gapEnd += countLineBreaks(removed);
+        docLength += inserted.length() - removed.length();
+
+        for (int i = inserted.indexOf('\n'); i != -1; i = inserted.indexOf('\n', i + 1)) {
+            if (gapStart == gapEnd) {
+                grow();
+            }
+            buf[gapStart++] = position + i + 1;
+        }
+    }
+
+    /**
+     * Move the gap so that it starts just before the given line.
+     */
+    private void moveGap(int line)
+    {
+        while (gapStart > line) {
+            gapStart--;
+            gapEnd--;
+            buf[gapEnd] = docLength - buf[gapStart];
+        }
+        while (gapStart < line) {
+            buf[gapStart] = docLength - buf[gapEnd];
+            gapStart++;
+            gapEnd++;
+        }
+    }
+
+    /**
+     * Double the size of the buffer (and so the gap).
+     */
+    private void grow()
+    {
+        int tailLength = buf.length - gapEnd;
+        int[] newBuf = Arrays.copyOf(buf, buf.length * 2);
+        System.arraycopy(buf, gapEnd, newBuf, newBuf.length - tailLength, tailLength);
+        buf = newBuf;
+        gapEnd = newBuf.length - tailLength;
+    }
+
+    private static int countLineBreaks(String text)
+    {
+        int count = 0;
+        for (int i = text.indexOf('\n'); i != -1; i = text.indexOf('\n', i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -1410,7 +1410,7 @@ public final class MoeEditor extends ScopeColorsBorderPane
     /**
      * Schedule the ReparseRunner on the FX Platform queue, if it is not already scheduled.
      */
-    private void scheduleReparseRunner() {
+    void scheduleReparseRunner() {
         if (reparseRunner == null) {
             reparseRunner = new ReparseRunner(this);
             JavaFXUtil.runPlatformLater(reparseRunner);
@@ -32,6 +32,7 @@ import bluej.editor.moe.BlueJSyntaxView.ParagraphAttribute;
 import bluej.editor.moe.BlueJSyntaxView.ScopeInfo;
 import bluej.editor.moe.Token.TokenType;
 import bluej.utility.Utility;
+import bluej.utility.javafx.FXPlatformRunnable;
 import bluej.utility.javafx.JavaFXUtil;
 import com.google.common.collect.ImmutableSet;
 import javafx.beans.binding.BooleanExpression;
@@ -79,11 +80,25 @@ public class MoeSyntaxDocument
     
     /** Maximum amount of document to reparse in one hit (advisory) */
     private final static int MAX_PARSE_PIECE = 8000;
+    /**
+     * Minimum amount of queued reparse work (in characters) for which we parse a snapshot of
+     * the document on a background thread, rather than incrementally on the FX thread.
+     */
+    private final static int BACKGROUND_PARSE_THRESHOLD = 4 * MAX_PARSE_PIECE;
     private final int tabSize;
 
     private ParsedCUNode parsedNode;
     private EntityResolver parentResolver;
     private NodeTree<ReparseRecord> reparseRecordTree;
+    
+    /** Incremented on every change to the document content */
+    private int contentVersion = 0;
+    /** The background parse currently in progress, if any */
+    private BackgroundParse backgroundParse;
+    /** Run if the background parse in progress fails, so that parsing carries on some other way */
+    private FXPlatformRunnable backgroundParseFailed;
+    /** The content version for which a background parse last failed, or -1 */
+    private int failedParseVersion = -1;
 
     /**
      * We want to avoid repaint flicker by letting the user see partly-updated
@@ -98,11 +113,11 @@ public class MoeSyntaxDocument
     // Can be null if we are not being used for an editor pane:
     private final BlueJSyntaxView syntaxView;
     private boolean hasFindHighlights = false;
-    // null means not cached, non-null means cached
-    private String cachedContent = null;
-    // null means not cached, non-null means cached
-    // lineStarts[0] is 0, lineStarts[1] is the index of beginning of the next line (i.e. just after \n), and so on.
-    private int[] lineStarts = null;
+    // A copy of the document text, updated in step with each change to the document
+    // (so that reading text doesn't need to walk the styled document):
+    private final StringBuilder content = new StringBuilder();
+    // The start offset of each line, likewise kept up to date with each change:
+    private final LineStartIndex lineStarts = new LineStartIndex();
     // package-visible:
     boolean notYetShown = true;
 
@@ -172,80 +187,64 @@ public class MoeSyntaxDocument
 
     public TwoDimensional.Position offsetToPosition(int startOffset)
     {
-        if (lineStarts == null)
+        int lineFinal = lineStarts.getLineOfOffset(startOffset);
+        int column = startOffset - lineStarts.getLineStart(lineFinal);
+        return new TwoDimensional.Position()
         {
-            return document.offsetToPosition(startOffset, Bias.Forward);
-        }
-        else
-        {
-            // No need to check first line:
-            int line = 1;
-            for (; line < lineStarts.length; line++)
+            @Override
+            public TwoDimensional getTargetObject()
             {
-                if (startOffset < lineStarts[line])
-                    break;
-
+                return document;
             }
-            line -= 1; // We went just past it, so now go back one
-            int lineFinal = line;
-            int column = startOffset - lineStarts[lineFinal];
-            return new TwoDimensional.Position()
-            {
-                @Override
-                public TwoDimensional getTargetObject()
-                {
-                    return document;
-                }
 
-                @Override
-                public int getMajor()
-                {
-                    return lineFinal;
-                }
+            @Override
+            public int getMajor()
+            {
+                return lineFinal;
+            }
 
-                @Override
-                public int getMinor()
-                {
-                    return column;
-                }
+            @Override
+            public int getMinor()
+            {
+                return column;
+            }
 
-                @Override
-                public boolean sameAs(TwoDimensional.Position other)
-                {
-                    return getTargetObject() == other.getTargetObject() && getMajor() == other.getMajor() && getMinor() == other.getMinor();
-                }
+            @Override
+            public boolean sameAs(TwoDimensional.Position other)
+            {
+                return getTargetObject() == other.getTargetObject() && getMajor() == other.getMajor() && getMinor() == other.getMinor();
+            }
 
-                @Override
-                public TwoDimensional.Position clamp()
-                {
-                    return this;
-                }
+            @Override
+            public TwoDimensional.Position clamp()
+            {
+                return this;
+            }
 
-                @Override
-                public TwoDimensional.Position offsetBy(int offset, Bias bias)
-                {
-                    // Just fall back to document, don't think we call this anyway:
-                    return document.offsetToPosition(startOffset + offset, Bias.Forward);
-                }
+            @Override
+            public TwoDimensional.Position offsetBy(int offset, Bias bias)
+            {
+                // Just fall back to document, don't think we call this anyway:
+                return document.offsetToPosition(startOffset + offset, Bias.Forward);
+            }
 
-                @Override
-                public int toOffset()
-                {
-                    return startOffset;
-                }
-            };
-        }
+            @Override
+            public int toOffset()
+            {
+                return startOffset;
+            }
+        };
     }
 
     private int getAbsolutePosition(int lineIndex, int columnIndex)
     {
-        if (lineStarts == null || lineIndex >= lineStarts.length) // Second part shouldn't happen, but just in case
+        if (lineIndex >= lineStarts.getLineCount()) // Shouldn't happen, but just in case
         {
             return document.getAbsolutePosition(lineIndex, columnIndex);
         }
         else
         {
-            return lineStarts[lineIndex] + columnIndex;
+            return lineStarts.getLineStart(lineIndex) + columnIndex;
         }
     }
 
@@ -303,7 +302,11 @@ public class MoeSyntaxDocument
         this.syntaxView = makeSyntaxView.apply(this);
 
         document.plainChanges().subscribe(c -> {
-            invalidateCache();
+            content.replace(c.getPosition(), c.getRemovalEnd(), c.getInserted());
+            lineStarts.replace(c.getPosition(), c.getRemoved(), c.getInserted());
+            // Any background parse is now parsing out-of-date content:
+            contentVersion++;
+            cancelBackgroundParse();
             // Must fire remove before insert:
             if (!c.getRemoved().isEmpty())
             {
@@ -320,40 +323,11 @@ public class MoeSyntaxDocument
                 // Apply backgrounds from simple update, as it may not even
                 // trigger a reparse.  This must be done later, after the document has finished
                 // doing all the updates to the content, before we can mess with paragraph styles:
-                JavaFXUtil.runAfterCurrent(() -> {
-                    invalidateCache();
-                    applyPendingScopeBackgrounds();
-                });
+                JavaFXUtil.runAfterCurrent(() -> applyPendingScopeBackgrounds());
             }
         });
     }
 
-    private void invalidateCache()
-    {
-        cachedContent = null;
-        lineStarts = null;
-    }
-
-    private void cacheContent()
-    {
-        if (cachedContent == null)
-            cachedContent = document.getText();
-        if (lineStarts == null)
-        {
-            lineStarts = new int[document.getParagraphs().size()];
-            lineStarts[0] = 0;
-            int curLine = 0;
-            for (int character = 0; character < cachedContent.length(); character++)
-            {
-                if (cachedContent.charAt(character) == '\n')
-                {
-                    curLine += 1;
-                    lineStarts[curLine] = character + 1;
-                }
-            }
-        }
-    }
-
     public MoeSyntaxDocument()
     {
         this(d -> null);
@@ -436,6 +410,145 @@ public class MoeSyntaxDocument
         }
     }
 
+    /**
+     * Get the total size of the sections of the document which are waiting to be re-parsed.
+     */
+    private int getPendingReparseSize()
+    {
+        int total = 0;
+        if (reparseRecordTree != null) {
+            NodeAndPosition<ReparseRecord> nap = reparseRecordTree.findNodeAtOrAfter(0);
+            while (nap != null) {
+                total += nap.getSize();
+                nap = nap.nextSibling();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Check whether a background parse is currently in progress.
+     */
+    public boolean isBackgroundParseRunning()
+    {
+        return backgroundParse != null;
+    }
+
+    /**
+     * If there is a large amount of re-parsing queued, start parsing a snapshot of the
+     * document on a background thread, so that the FX thread is not kept busy. When the
+     * parse completes, the new parsed structure replaces the current one (on the FX thread),
+     * unless the document has been modified in the meantime, in which case the result is
+     * discarded.  If the background parse fails, no other background parse is started
+     * for the same content, and the given action is run so that the caller can carry on
+     * parsing incrementally.
+     *
+     * @return  true if a background parse was started; false if the remaining work should be
+     *          done incrementally via pollReparseQueue().
+     */
+    public boolean startBackgroundParseIfWorthwhile(FXPlatformRunnable onFailure)
+    {
+        if (backgroundParse != null || parsedNode == null || thisDocIsForPrinting
+                || failedParseVersion == contentVersion
+                || getPendingReparseSize() < BACKGROUND_PARSE_THRESHOLD) {
+            return false;
+        }
+
+        BackgroundParse parse = new BackgroundParse(getText(0, getLength()), contentVersion);
+        backgroundParse = parse;
+        backgroundParseFailed = onFailure;
+        parse.start();
+        return true;
+    }
+
+    /**
+     * Cancel any background parse in progress. Its result will be discarded.
+     */
+    private void cancelBackgroundParse()
+    {
+        if (backgroundParse != null) {
+            backgroundParse.cancelled = true;
+            backgroundParse = null;
+            backgroundParseFailed = null;
+        }
+    }
+
+    /**
+     * Replace the parsed structure with one produced by a background parse, if the
+     * document has not changed since the parse began.
+     */
+    private void backgroundParseFinished(BackgroundParse parse, ParsedCUNode result)
+    {
+        if (backgroundParse != parse) {
+            // Cancelled; the result is stale
+            return;
+        }
+        backgroundParse = null;
+        FXPlatformRunnable onFailure = backgroundParseFailed;
+        backgroundParseFailed = null;
+
+        if (result == null) {
+            // The queued re-parsing is still to do; it must now be done incrementally:
+            failedParseVersion = parse.version;
+            if (onFailure != null) {
+                onFailure.run();
+            }
+        }
+        else if (parse.version == contentVersion && parsedNode != null) {
+            parsedNode = result;
+            parsedNode.setParentResolver(parentResolver);
+            // The whole document has now been parsed:
+            reparseRecordTree = new NodeTree<ReparseRecord>();
+            // Everything may have changed, so repaint the lot:
+            fireChangedUpdate(null);
+        }
+    }
+
+    /**
+     * A parse of a snapshot of the document content on a background thread.
+     */
+    @OnThread(Tag.Any)
+    private class BackgroundParse extends Thread
+    {
+        private final String content;
+        private final int version;
+        private volatile boolean cancelled = false;
+
+        public BackgroundParse(String content, int version)
+        {
+            super("BlueJ background parser");
+            setDaemon(true);
+            setPriority(Thread.MIN_PRIORITY);
+            this.content = content;
+            this.version = version;
+        }
+
+        @Override
+        // The snapshot document is created and used only on this thread, so it is
+        // safe to use it here although it is normally an FX-thread object:
+        @OnThread(value = Tag.FXPlatform, ignoreParent = true)
+        public void run()
+        {
+            ParsedCUNode result = null;
+            try {
+                MoeSyntaxDocument snapshot = new MoeSyntaxDocument();
+                snapshot.markAsForPrinting();
+                snapshot.insertString(0, content);
+                snapshot.enableParser(true);
+                while (! cancelled && snapshot.pollReparseQueue(MAX_PARSE_PIECE)) ;
+                if (! cancelled) {
+                    result = snapshot.parsedNode;
+                }
+            }
+            catch (RuntimeException e) {
+                Debug.reportError("Exception during background parse", e);
+            }
+
+            ParsedCUNode finalResult = result;
+            JavaFXUtil.runPlatformLater(() -> backgroundParseFinished(this, finalResult));
+        }
+    }
+
     /**
      * Run an item from the re-parse queue, if there are any. Return true if
      * a queued re-parse was processed or false if the queue was empty.
@@ -563,7 +676,6 @@ public class MoeSyntaxDocument
     {
         if (syntaxView == null)
             return;
-        cacheContent();
         List<ScopeInfo> paragraphScopeInfo = syntaxView.recalculateScopes(firstLineIncl, lastLineIncl);
         if (paragraphScopeInfo.isEmpty())
             return; // Not initialised yet
@@ -643,6 +755,8 @@ public class MoeSyntaxDocument
      */
     public void flushReparseQueue()
     {
+        // We need the result now, so do the work here rather than waiting:
+        cancelBackgroundParse();
         while (pollReparseQueue(getLength())) ;
         // Queue now empty, so flush backgrounds:
         applyPendingScopeBackgrounds();
@@ -833,8 +947,8 @@ public class MoeSyntaxDocument
             });
         }
         fireChangedUpdate(mse);
-        int startLine = document.offsetToPosition(offset, Bias.Forward).getMajor();
-        int endLine = document.offsetToPosition(offset + length, Bias.Forward).getMajor();
+        int startLine = lineStarts.getLineOfOffset(offset);
+        int endLine = lineStarts.getLineOfOffset(offset + length);
         recalculateScopesForLinesInRange(startLine, endLine);
         if (syntaxView != null)
         {
@@ -931,7 +1045,7 @@ public class MoeSyntaxDocument
             });
         }
         fireChangedUpdate(mse);
-        int line = document.offsetToPosition(offset, Bias.Forward).getMajor();
+        int line = lineStarts.getLineOfOffset(offset);
         recalculateScopesForLinesInRange(line, line);
         if (syntaxView != null)
         {
@@ -978,22 +1092,19 @@ public class MoeSyntaxDocument
 
     public String getText(int start, int length)
     {
-        if (cachedContent == null)
-        {
-            return document.getText(start, start + length);
-        }
-        else
-        {
-            return cachedContent.substring(start, start + length);
-        }
+        return content.substring(start, start + length);
     }
 
     public void getText(int startOffset, int length, Segment segment)
     {
-        String s = getText(startOffset, length);
-        segment.array = s.toCharArray();
+        // Re-use the segment's array if it is big enough:
+        if (segment.array == null || segment.array.length < length)
+        {
+            segment.array = new char[length];
+        }
+        content.getChars(startOffset, startOffset + length, segment.array, 0);
         segment.offset = 0;
-        segment.count = s.length();
+        segment.count = length;
     }
 
     public void insertString(int start, String text)
@@ -1042,20 +1153,11 @@ public class MoeSyntaxDocument
             @Override
             public Element getElement(int index)
             {
-                if (index >= (lineStarts != null ? lineStarts.length : document.getParagraphs().size()))
+                if (index >= lineStarts.getLineCount())
                     return null;
 
-                boolean lastPara = lineStarts != null ? (index == lineStarts.length - 1) : (index == document.getParagraphs().size() - 1);
-                int paraLength;
-                if (lineStarts == null)
-                {
-                    paraLength = document.getParagraph(index).length() + (lastPara ? 0 : 1 /* newline */);
-                }
-                else
-                {
-                    paraLength = lastPara ? (document.getLength() - lineStarts[index]) : lineStarts[index + 1] - lineStarts[index];
-                }
-                int pos = getAbsolutePosition(index, 0);
+                int pos = lineStarts.getLineStart(index);
+                int paraLength = lineStarts.getLineEnd(index) - pos;
                 return new Element()
                 {
                     @Override
@@ -1111,10 +1213,7 @@ public class MoeSyntaxDocument
             @Override
             public int getElementCount()
             {
-                if (lineStarts != null)
-                    return lineStarts.length;
-                else
-                    return document.getParagraphs().size();
+                return lineStarts.getLineCount();
             }
         };
     }
@@ -33,7 +33,9 @@ import threadchecker.Tag;
  * 
  * <p>This is a Runnable which runs on the Swing/AWT event queue. It performs
  * a small amount of re-parsing before re-queing itself, which allows input
- * to be processed in the meantime.
+ * to be processed in the meantime. If a large part of the document needs
+ * re-parsing, the work is instead handed to a background thread (see
+ * {@link MoeSyntaxDocument#startBackgroundParseIfWorthwhile}).
  * 
  * @author Davin McCall
  */
@@ -58,7 +60,14 @@ public class ReparseRunner implements FXPlatformRunnable
     {
         MoeSyntaxDocument document = editor.getSourceDocument();
         long begin = System.currentTimeMillis();
-        if (PrefMgr.getScopeHighlightStrength().get() != 0 && document != null && document.pollReparseQueue()) {
+        if (PrefMgr.getScopeHighlightStrength().get() != 0 && document != null
+                && (document.isBackgroundParseRunning() || document.startBackgroundParseIfWorthwhile(editor::scheduleReparseRunner))) {
+            // A large amount of the document needs re-parsing; that is being done on a
+            // background thread. Any edit will cancel it and re-schedule us, as will
+            // the background parse failing.
+            editor.reparseRunnerFinished();
+        }
+        else if (PrefMgr.getScopeHighlightStrength().get() != 0 && document != null && document.pollReparseQueue()) {
             // Continue processing
             while (System.currentTimeMillis() - begin < this.procTime) {
                 if (! document.pollReparseQueue()) {
@@ -26,6 +26,8 @@ import java.io.File;
 import java.io.InputStream;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.Properties;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
@@ -33,6 +35,7 @@ import java.util.jar.Manifest;
 
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 import threadchecker.OnThread;
 import threadchecker.Tag;
@@ -43,6 +46,7 @@ import bluej.extensions.Extension;
 import bluej.extensions.ExtensionBridge;
 import bluej.extensions.PreferenceGenerator;
 import bluej.extensions.event.ExtensionEvent;
+import bluej.extensions.event.PackageEvent;
 import bluej.extensions.painter.ExtensionClassTargetPainter;
 import bluej.pkgmgr.Project;
 import bluej.pkgmgr.Layer;
@@ -65,6 +69,16 @@ import bluej.utility.Debug;
  */
 public class ExtensionWrapper
 {
+    /**
+     * Events are delivered in slices of at most this long, so that the user interface
+     * stays responsive while a slow extension works through its queue.
+     */
+    private static final long EVENT_SLICE_MILLIS = 20;
+    /** An extension which takes longer than this to handle an event is reported as slow */
+    private static final long SLOW_EVENT_MILLIS = 500;
+    /** The number of buckets in the event latency histogram */
+    private static final int LATENCY_BUCKETS = 16;
+
     private final ExtensionPrefManager prefManager;
 
     private File extensionJarFileName;
@@ -79,6 +93,13 @@ public class ExtensionWrapper
     private String  extensionStatusString;
     private Project project;
 
+    // Events waiting to be delivered to the extension, in the order they occurred:
+    private final LinkedList<ExtensionEvent> pendingEvents = new LinkedList<>();
+    private boolean deliveryScheduled;
+    // Histogram of the time taken to handle each event (see recordEventLatency):
+    private final long[] eventLatencies = new long[LATENCY_BUCKETS];
+    private boolean reportedSlow;
+
     /**
      * Construct a new ExtensionWrapper for the given jar file.
      * 
@@ -266,6 +287,8 @@ public class ExtensionWrapper
      */
     void terminate()
     {
+        // Events such as the closing of a package must still reach the extension:
+        deliverEvents(Long.MAX_VALUE);
         safeTerminate();
 
         // Needed to signal to the revalidate (below) that this instance is no longer here.            
@@ -403,6 +426,96 @@ public class ExtensionWrapper
         return "ExtensionWrapper: "+ extensionClass.getName();
     }
 
+    /**
+     * Deliver an event to the extension.  Normally the event is delivered straight
+     * away.  Once the extension has been found to be slow to handle events, or if
+     * earlier events are still waiting, the event is instead queued and delivered
+     * later on the Swing thread; either way, events arrive in the order they occurred.
+     * 
+     * <p>Events which announce that something is about to happen (such as a package
+     * closing) are always delivered before this method returns, along with any
+     * events queued before them, since the extension may need to act on them while
+     * the state they describe is still there.
+     */
+    public void queueEvent(ExtensionEvent event)
+    {
+        if (!isValid()) {
+            return;
+        }
+
+        if (pendingEvents.isEmpty() && !reportedSlow) {
+            safeEventOccurred(event);
+            return;
+        }
+
+        pendingEvents.add(event);
+        if (isAdvanceNotice(event)) {
+            deliverEvents(Long.MAX_VALUE);
+        }
+        else {
+            scheduleDelivery();
+        }
+    }
+
+    /**
+     * Check whether an event announces something which is about to happen, and so
+     * must be delivered before the caller carries on.
+     */
+    private static boolean isAdvanceNotice(ExtensionEvent event)
+    {
+        return event instanceof PackageEvent
+                && ((PackageEvent) event).getEvent() == PackageEvent.PACKAGE_CLOSING;
+    }
+
+    private void scheduleDelivery()
+    {
+        if (!deliveryScheduled) {
+            deliveryScheduled = true;
+            SwingUtilities.invokeLater(() -> {
+                deliveryScheduled = false;
+                deliverEvents(EVENT_SLICE_MILLIS);
+            });
+        }
+    }
+
+    /**
+     * Deliver queued events to the extension, until the queue is empty or the given
+     * time has been used.  In the latter case, delivery of the remaining events is
+     * scheduled for later, which throttles an extension that is slow to handle events.
+     */
+    private void deliverEvents(long maxMillis)
+    {
+        long start = System.currentTimeMillis();
+        while (!pendingEvents.isEmpty()) {
+            if (System.currentTimeMillis() - start >= maxMillis) {
+                // Give other work a chance, and carry on later:
+                scheduleDelivery();
+                return;
+            }
+            safeEventOccurred(pendingEvents.removeFirst());
+        }
+    }
+
+    /**
+     * Record the time taken by the extension to handle an event, and report the extension
+     * (once) if it was unreasonably slow.
+     */
+    private void recordEventLatency(ExtensionEvent event, long millis)
+    {
+        // Bucket 0 is under 1ms, bucket n is from 2^(n-1) to under 2^n ms, and the
+        // last bucket also has everything slower:
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(millis), LATENCY_BUCKETS - 1);
+        eventLatencies[bucket]++;
+
+        if (millis >= SLOW_EVENT_MILLIS && !reportedSlow) {
+            reportedSlow = true;
+            extensionStatusString = Config.getString("extmgr.status.slow");
+            Debug.message("Extension " + getExtensionClassName() + " took " + millis + "ms to handle "
+                    + event.getClass().getSimpleName() + "; event times so far (by power-of-two ms): "
+                    + Arrays.toString(eventLatencies));
+        }
+    }
+
     /* 
      * ====================== ERROR WRAPPED CALLS HERE =========================
      * We need to wrap all calls from BlueJ to the Extension into a try/catch;
@@ -418,6 +531,7 @@ public class ExtensionWrapper
             return;
         }
 
+        long start = System.currentTimeMillis();
         try {
             ExtensionBridge.delegateEvent(extensionBluej,event);
         }
@@ -426,6 +540,9 @@ public class ExtensionWrapper
             exc.printStackTrace();
             return;
         }
+        finally {
+            recordEventLatency(event, System.currentTimeMillis() - start);
+        }
     }
 
     
@@ -369,13 +369,16 @@ public class ExtensionsManager
     }
 
     /**
-     * Delegates an event to all known extensions.
+     * Delegates an event to all known extensions.  An extension which is slow to
+     * handle events has them queued and delivered later (see
+     * ExtensionWrapper.queueEvent), so that the caller is not held up by it.  Each
+     * extension still receives its events in the order they occurred.
      */
     public void delegateEvent(ExtensionEvent event)
     {
         synchronized(extensions) {            
             for (ExtensionWrapper wrapper : extensions) {
-                wrapper.safeEventOccurred(event);
+                wrapper.queueEvent(event);
             }
         }
     }
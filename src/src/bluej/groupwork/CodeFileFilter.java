@@ -31,6 +31,7 @@ import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import bluej.pkgmgr.BlueJPackageFile;
+import bluej.pkgmgr.ClassApiFingerprints;
 import bluej.utility.Debug;
 
 /**
@@ -152,6 +153,9 @@ public class CodeFileFilter implements FileFilter, FilenameFilter
         if (name.equals("team.defs")) {
             return false;
         }
+        if (name.equals(ClassApiFingerprints.FILE_NAME)) {
+            return false;
+        }
         if (name.equals(".DS_Store")) {
             return false;
         }
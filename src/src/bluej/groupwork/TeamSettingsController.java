@@ -657,6 +657,17 @@ public class TeamSettingsController
         return settings.getProvider().getWorkingCopyVersion(projectDir);
     }
 
+    /**
+     * Release any resources held for the project's working copy. Called when the
+     * project is closed.
+     */
+    public void closeWorkingCopy()
+    {
+        if (settings != null && projectDir != null) {
+            settings.getProvider().closeWorkingCopy(projectDir);
+        }
+    }
+
     public boolean isDVCS()
     {
         // We should possibly show the dialog here to get the settings,
@@ -103,6 +103,15 @@ public interface TeamworkProvider
         return -1;
     }
 
+    /**
+     * Release any resources held for a working copy (for instance, when the
+     * project in it is closed).
+     * @param projectDir project's directory.
+     */
+    public default void closeWorkingCopy(File projectDir)
+    {
+    }
+
     /**
      * Is this a distributed version control system?
      * @return
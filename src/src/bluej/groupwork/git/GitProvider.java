@@ -329,6 +329,12 @@ public class GitProvider implements TeamworkProvider
         return result;
     }
 
+    @Override
+    public void closeWorkingCopy(File projectDir)
+    {
+        GitStatusCache.close(projectDir);
+    }
+
     @Override
     public boolean isDVCS()
     {
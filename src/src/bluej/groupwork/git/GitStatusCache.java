@@ -0,0 +1,399 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2017  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.groupwork.git;
+
+import bluej.Config;
+import bluej.utility.Debug;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.IndexDiff;
+import org.eclipse.jgit.lib.IndexDiff.StageState;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Keeps the local status (the differences between HEAD, the index and the working
+ * tree) of a Git working tree, so that it doesn't have to be worked out again
+ * from scratch each time the status is requested.
+ *
+ * The working tree is watched for changes.  When the status is requested, only
+ * the files which have changed since last time are compared again.  Changes to
+ * the .git directory (commits, merges, etc), to directories, or to very many
+ * files cause the whole status to be worked out again.
+ *
+ * There is one cache per working tree, shared by all GitRepository objects for it.
+ * It is discarded (and the watcher closed) by close() when the project is closed.
+ */
+class GitStatusCache
+{
+    /** Beyond this many changed files, a full comparison is quicker than an incremental one */
+    private static final int MAX_INCREMENTAL_PATHS = 100;
+
+    private static final Map<File, GitStatusCache> caches = new HashMap<>();
+
+    private final Path workTree;
+    private final Path gitDir;
+    /** The watcher for the working tree, or null if we can't watch it (and so can't cache) */
+    private WatchService watcher;
+    private final Set<Path> watchedDirs = new HashSet<>();
+    /** The status as of the last request, or null if not yet known */
+    private LocalStatus status;
+    /** Set once the cache has been discarded; we no longer watch the working tree */
+    private boolean closed;
+
+    private GitStatusCache(File workTree)
+    {
+        this.workTree = workTree.toPath().toAbsolutePath();
+        this.gitDir = this.workTree.resolve(Constants.DOT_GIT);
+    }
+
+    /**
+     * Get the cache for the given working tree.
+     */
+    @OnThread(Tag.Any)
+    public static synchronized GitStatusCache forWorkTree(File workTree)
+    {
+        return caches.computeIfAbsent(workTree.getAbsoluteFile(), GitStatusCache::new);
+    }
+
+    /**
+     * Discard the cache for the given working tree, if there is one, and stop
+     * watching the tree.
+     */
+    @OnThread(Tag.Any)
+    public static void close(File workTree)
+    {
+        GitStatusCache cache;
+        synchronized (GitStatusCache.class) {
+            cache = caches.remove(workTree.getAbsoluteFile());
+        }
+        // Outside the class lock, since a status request may be holding the cache:
+        if (cache != null) {
+            cache.stopWatching();
+        }
+    }
+
+    /**
+     * Get the current local status of the repository.
+     */
+    @OnThread(Tag.Worker)
+    public synchronized LocalStatus getStatus(Repository repo) throws IOException
+    {
+        if (status == null) {
+            startWatching();
+            status = new LocalStatus(diff(repo, null));
+            return status;
+        }
+
+        Set<String> changed = new HashSet<>();
+        if (!readChanges(changed) || status.needsFullDiff(changed)) {
+            status = new LocalStatus(diff(repo, null));
+        }
+        else if (!changed.isEmpty()) {
+            status = status.update(changed, diff(repo, changed));
+        }
+        return status;
+    }
+
+    /**
+     * Compare HEAD, the index and the working tree, for all files (if paths is null)
+     * or just the given files.
+     */
+    @OnThread(Tag.Worker)
+    private static IndexDiff diff(Repository repo, Collection<String> paths) throws IOException
+    {
+        IndexDiff diff = new IndexDiff(repo, Constants.HEAD, new FileTreeIterator(repo));
+        if (paths != null) {
+            diff.setFilter(PathFilterGroup.createFromStrings(paths));
+        }
+        diff.diff();
+        return diff;
+    }
+
+    /**
+     * Start watching the working tree, if possible.  If we can't, the status
+     * will be worked out in full every time.
+     */
+    private void startWatching()
+    {
+        if (watcher != null || closed) {
+            return;
+        }
+        // Windows keeps watched directories open, which stops them being renamed,
+        // and some platforms only poll for changes, so we might miss recent edits:
+        if (Config.isWinOS()) {
+            return;
+        }
+        try {
+            watcher = FileSystems.getDefault().newWatchService();
+            if (watcher.getClass().getName().contains("Polling")) {
+                watcher.close();
+                watcher = null;
+                return;
+            }
+            watchTree(workTree);
+        }
+        catch (IOException ioe) {
+            Debug.reportError("Could not watch Git working tree " + workTree, ioe);
+            watcher = null;
+        }
+    }
+
+    @OnThread(Tag.Any)
+    private synchronized void stopWatching()
+    {
+        closed = true;
+        status = null;
+        watchedDirs.clear();
+        if (watcher != null) {
+            try {
+                watcher.close();
+            }
+            catch (IOException ioe) {
+                Debug.reportError("Error closing watcher for Git working tree " + workTree, ioe);
+            }
+            watcher = null;
+        }
+    }
+
+    /**
+     * Watch the given directory and all directories within it.  Only the top level
+     * of the .git directory is watched, which is enough to see the index and HEAD change.
+     */
+    private void watchTree(Path dir) throws IOException
+    {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) throws IOException
+            {
+                d.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirs.add(d);
+                return d.equals(gitDir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Collect the files which have changed since the last call.
+     *
+     * @param changed The set to add the changed files to (as paths relative to the working tree)
+     * @return true if the changes can be dealt with incrementally; false if the whole
+     *         status must be worked out again
+     */
+    private boolean readChanges(Set<String> changed) throws IOException
+    {
+        if (watcher == null) {
+            return false;
+        }
+
+        boolean incremental = true;
+        for (WatchKey key = watcher.poll(); key != null; key = watcher.poll()) {
+            Path dir = (Path)key.watchable();
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    incremental = false;
+                    continue;
+                }
+                Path path = dir.resolve((Path)event.context());
+                if (path.startsWith(gitDir)) {
+                    incremental = false;
+                }
+                else if (Files.isDirectory(path)) {
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                        watchTree(path);
+                        incremental = false;
+                    }
+                }
+                else if (watchedDirs.contains(path)) {
+                    // A watched directory has been deleted:
+                    incremental = false;
+                }
+                else if (isRulesFile(path)) {
+                    // This may change the status of any number of other files:
+                    incremental = false;
+                }
+                else {
+                    changed.add(workTree.relativize(path).toString().replace(File.separatorChar, '/'));
+                }
+            }
+            if (!key.reset()) {
+                watchedDirs.remove(dir);
+            }
+        }
+        return incremental && changed.size() <= MAX_INCREMENTAL_PATHS;
+    }
+
+    /**
+     * Check whether a file in the working tree holds rules (ignores or attributes)
+     * which affect other files.
+     */
+    private static boolean isRulesFile(Path path)
+    {
+        String name = path.getFileName().toString();
+        return name.equals(Constants.DOT_GIT_IGNORE) || name.equals(Constants.DOT_GIT_ATTRIBUTES);
+    }
+
+    /**
+     * The local status of a repository, in the same terms as JGit's Status.
+     * Immutable.
+     */
+    @OnThread(Tag.Any)
+    static class LocalStatus
+    {
+        private final Set<String> added;
+        private final Set<String> changed;
+        private final Set<String> removed;
+        private final Set<String> missing;
+        private final Set<String> modified;
+        private final Set<String> untracked;
+        private final Set<String> untrackedFolders;
+        private final Set<String> conflicting;
+        private final Map<String, StageState> conflictingStageState;
+
+        private LocalStatus(IndexDiff diff)
+        {
+            added = new HashSet<>(diff.getAdded());
+            changed = new HashSet<>(diff.getChanged());
+            removed = new HashSet<>(diff.getRemoved());
+            missing = new HashSet<>(diff.getMissing());
+            modified = new HashSet<>(diff.getModified());
+            untracked = new HashSet<>(diff.getUntracked());
+            untrackedFolders = new HashSet<>(diff.getUntrackedFolders());
+            conflicting = new HashSet<>(diff.getConflicting());
+            conflictingStageState = new HashMap<>(diff.getConflictingStageStates());
+        }
+
+        /**
+         * Make a copy of this status, with the entries for the given paths replaced
+         * by those from the given diff (which should only cover those paths).
+         */
+        private LocalStatus update(Set<String> paths, IndexDiff diff)
+        {
+            LocalStatus result = new LocalStatus(diff);
+            result.added.addAll(without(added, paths));
+            result.changed.addAll(without(changed, paths));
+            result.removed.addAll(without(removed, paths));
+            result.missing.addAll(without(missing, paths));
+            result.modified.addAll(without(modified, paths));
+            result.untracked.addAll(without(untracked, paths));
+            result.untrackedFolders.addAll(untrackedFolders);
+            result.conflicting.addAll(without(conflicting, paths));
+            conflictingStageState.forEach((path, state) -> {
+                if (!paths.contains(path)) {
+                    result.conflictingStageState.put(path, state);
+                }
+            });
+            return result;
+        }
+
+        private static Set<String> without(Set<String> set, Set<String> paths)
+        {
+            Set<String> result = new HashSet<>(set);
+            result.removeAll(paths);
+            return result;
+        }
+
+        /**
+         * Check whether the given changed paths can't be dealt with by update(),
+         * because they are within folders which are reported as a whole.
+         */
+        private boolean needsFullDiff(Set<String> paths)
+        {
+            for (String folder : untrackedFolders) {
+                for (String path : paths) {
+                    if (path.equals(folder) || path.startsWith(folder + "/")) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public Set<String> getMissing()
+        {
+            return Collections.unmodifiableSet(missing);
+        }
+
+        public Set<String> getRemoved()
+        {
+            return Collections.unmodifiableSet(removed);
+        }
+
+        public Set<String> getUntracked()
+        {
+            return Collections.unmodifiableSet(untracked);
+        }
+
+        public Set<String> getUntrackedFolders()
+        {
+            return Collections.unmodifiableSet(untrackedFolders);
+        }
+
+        public Set<String> getConflicting()
+        {
+            return Collections.unmodifiableSet(conflicting);
+        }
+
+        public Map<String, StageState> getConflictingStageState()
+        {
+            return Collections.unmodifiableMap(conflictingStageState);
+        }
+
+        /**
+         * Get all files which differ between HEAD, the index and the working tree,
+         * except those which are untracked; as JGit's Status.getUncommittedChanges().
+         */
+        public Set<String> getUncommittedChanges()
+        {
+            Set<String> uncommitted = new HashSet<>();
+            uncommitted.addAll(added);
+            uncommitted.addAll(changed);
+            uncommitted.addAll(removed);
+            uncommitted.addAll(missing);
+            uncommitted.addAll(modified);
+            uncommitted.addAll(conflicting);
+            return uncommitted;
+        }
+    }
+}
@@ -36,13 +36,14 @@ import bluej.utility.Debug;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Optional;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.errors.NoWorkTreeException;
 import org.eclipse.jgit.revwalk.RevCommit;
@@ -74,58 +75,53 @@ public class GitStatusCommand extends GitCommand
     public TeamworkCommandResult getResult()
     {
         boolean didFilesChange = true;
-        LinkedList<TeamStatusInfo> returnInfo = new LinkedList<>();
+        // Status for each file, in the order they were found:
+        Map<File, TeamStatusInfo> returnInfo = new LinkedHashMap<>();
         File gitPath = this.getRepository().getProjectPath();
 
         try (Git repo = Git.open(this.getRepository().getProjectPath())) {
 
             //check local status
-            org.eclipse.jgit.api.Status s = repo.status().call();
+            GitStatusCache.LocalStatus s = GitStatusCache.forWorkTree(gitPath).getStatus(repo.getRepository());
 
             s.getMissing().stream()
                     .filter(p -> filter.accept(new File(gitPath, p)))
                     .forEach(item -> {
                         TeamStatusInfo teamInfo = new TeamStatusInfo(new File(gitPath, item), "", null, Status.DELETED);
-                        returnInfo.add(teamInfo);
+                        returnInfo.put(teamInfo.getFile(), teamInfo);
                     });
 
             s.getUncommittedChanges().stream()
                     .filter(p -> filter.accept(new File(gitPath, p)))
                     .forEach(item -> {
                         TeamStatusInfo teamInfo = new TeamStatusInfo(new File(gitPath, item), "", null, Status.NEEDS_COMMIT);
-                        TeamStatusInfo existingStatusInfo = getTeamStatusInfo(returnInfo, teamInfo.getFile());
-                        if (existingStatusInfo == null) {
-                            //add this new entry to the returnInfo.
-                            returnInfo.add(teamInfo);
-                        }
+                        //add this new entry to the returnInfo, unless there already is one.
+                        returnInfo.putIfAbsent(teamInfo.getFile(), teamInfo);
                     });
 
             s.getUntracked().stream()
                     .filter(p -> filter.accept(new File(gitPath, p)))
-                    .forEach(item -> returnInfo.add(new TeamStatusInfo(new File(gitPath, item), "", null, Status.NEEDS_ADD)));
+                    .forEach(item -> addStatusInfo(returnInfo, new TeamStatusInfo(new File(gitPath, item), "", null, Status.NEEDS_ADD)));
 
             s.getUntrackedFolders().stream()
                     .filter(p -> filter.accept(new File(gitPath, p)))
-                    .forEach(item -> returnInfo.add(new TeamStatusInfo(new File(gitPath, item), "", null, Status.NEEDS_ADD)));
+                    .forEach(item -> addStatusInfo(returnInfo, new TeamStatusInfo(new File(gitPath, item), "", null, Status.NEEDS_ADD)));
 
             s.getRemoved().stream()
                     .filter(p -> filter.accept(new File(gitPath, p)))
-                    .forEach(item -> returnInfo.add(new TeamStatusInfo(new File(gitPath, item), "", null, Status.REMOVED)));
+                    .forEach(item -> addStatusInfo(returnInfo, new TeamStatusInfo(new File(gitPath, item), "", null, Status.REMOVED)));
             
             s.getConflicting().stream()
                     .filter(p -> filter.accept(new File(gitPath, p)))
                     .forEach(item -> {
                         TeamStatusInfo teamInfo = new TeamStatusInfo(new File(gitPath, item), "", null, Status.NEEDS_MERGE);
-                        TeamStatusInfo existingStatusInfo = getTeamStatusInfo(returnInfo, teamInfo.getFile());
-                        if (existingStatusInfo == null){
-                            returnInfo.add(teamInfo);
-                        }
+                        returnInfo.putIfAbsent(teamInfo.getFile(), teamInfo);
                     });
             
             Map<String, IndexDiff.StageState> conflictsMap = s.getConflictingStageState();
             conflictsMap.keySet().forEach(key -> {
                 File file = new File(gitPath, key);
-                TeamStatusInfo statusInfo = getTeamStatusInfo(returnInfo, file);
+                TeamStatusInfo statusInfo = returnInfo.get(file);
                 if (statusInfo == null) {
                     statusInfo = new TeamStatusInfo(file, "", null, Status.BLANK);
                 }
@@ -187,13 +183,12 @@ public class GitStatusCommand extends GitCommand
             //Git does not show any add up-to-date file. We need to add them maually to returnInfo.
             addUpToDateFiles(returnInfo, gitPath);
             if (listener != null) {
-                while (!returnInfo.isEmpty()) {
-                    TeamStatusInfo teamInfo = returnInfo.removeFirst();
+                for (TeamStatusInfo teamInfo : returnInfo.values()) {
                     listener.gotStatus(teamInfo);
                 }
                 listener.statusComplete(new GitStatusHandle(getRepository(), didFilesChange && isAheadOnly(repo), didFilesChange && getBehindCount(repo) > 0));
             }
-        } catch (IOException | GitAPIException | NoWorkTreeException | GitTreeException ex) {
+        } catch (IOException | NoWorkTreeException | GitTreeException ex) {
             Debug.reportError("Git status command exception", ex);
             return new TeamworkCommandError(ex.getMessage(), ex.getLocalizedMessage());
         }
@@ -201,34 +196,34 @@ public class GitStatusCommand extends GitCommand
         return new TeamworkCommandResult();
     }
 
-    private void addUpToDateFiles(LinkedList<TeamStatusInfo> returnInfo, File gitPath)
+    private void addUpToDateFiles(Map<File, TeamStatusInfo> returnInfo, File gitPath)
     {
+        // Directories containing a file with a status are not up-to-date:
+        Set<File> parents = new HashSet<>();
+        for (File file : returnInfo.keySet()) {
+            File parent = file.getParentFile();
+            while (parent != null && parents.add(parent)) {
+                parent = parent.getParentFile();
+            }
+        }
+
         for (File item : gitPath.listFiles()) {
             if (!filter.accept(item)) {
                 continue; // only process acceptable files.
             }
-            TeamStatusInfo itemStatus = getTeamStatusInfo(returnInfo, item);
-            if (itemStatus == null) {
+            if (!returnInfo.containsKey(item) && !parents.contains(item)) {
                 //file does not exist in the list, therefore it is up-to-date.
-                returnInfo.add(new TeamStatusInfo(item, "", null, Status.UP_TO_DATE, Status.UP_TO_DATE));
+                addStatusInfo(returnInfo, new TeamStatusInfo(item, "", null, Status.UP_TO_DATE, Status.UP_TO_DATE));
             }
         }
     }
 
     /**
-     * checks if a file already has an entry on returnInfo
-     *
-     * @param returnInfo list of TeamStatusInfo to be checked
-     * @param file file to check
-     * @return null if there is no entry of that file. The entry if it exists.
+     * Add a new entry to returnInfo, replacing any existing entry for the same file.
      */
-    private TeamStatusInfo getTeamStatusInfo(LinkedList<TeamStatusInfo> returnInfo, File file)
+    private void addStatusInfo(Map<File, TeamStatusInfo> returnInfo, TeamStatusInfo statusInfo)
     {
-        try {
-            return returnInfo.stream().filter(entry -> entry.getFile().getPath().contains(file.getPath())).findFirst().get();
-        } catch (Exception e) {
-            return null;
-        }
+        returnInfo.put(statusInfo.getFile(), statusInfo);
     }
 
 
@@ -240,19 +235,19 @@ public class GitStatusCommand extends GitCommand
         return result;
     }
 
-    private void updateRemoteStatus(LinkedList<TeamStatusInfo> returnInfo, File file, Status remoteStatus)
+    private void updateRemoteStatus(Map<File, TeamStatusInfo> returnInfo, File file, Status remoteStatus)
     {
-        TeamStatusInfo entry = getTeamStatusInfo(returnInfo, file);
+        TeamStatusInfo entry = returnInfo.get(file);
         if (entry != null) {
             entry.setRemoteStatus(remoteStatus);
         } else {
             //needs to create an entry.
             entry = new TeamStatusInfo(file, "", null, Status.UP_TO_DATE, remoteStatus);
-            returnInfo.add(entry);
+            returnInfo.put(file, entry);
         }
     }
 
-    private void updateRemoteStatus(File gitPath, List<DiffEntry> listOfDiffsLocal, List<DiffEntry> listOfDiffsRemote, LinkedList<TeamStatusInfo> returnInfo)
+    private void updateRemoteStatus(File gitPath, List<DiffEntry> listOfDiffsLocal, List<DiffEntry> listOfDiffsRemote, Map<File, TeamStatusInfo> returnInfo)
     {
         //first check local changes that does not appear in the remote list.
         for (DiffEntry localDiffItem : listOfDiffsLocal) {
@@ -277,7 +272,7 @@ public class GitStatusCommand extends GitCommand
             switch (remoteDiffItem.getChangeType()) {
                 case MODIFY:
                     if (localDiffItem.isPresent()) {
-                        TeamStatusInfo entry = getTeamStatusInfo(returnInfo, file);
+                        TeamStatusInfo entry = returnInfo.get(file);
                         switch (localDiffItem.get().getChangeType()) {
                             case MODIFY:
                                 if (entry == null){
@@ -329,7 +324,7 @@ public class GitStatusCommand extends GitCommand
                         updateRemoteStatus(returnInfo, file, Status.NEEDS_CHECKOUT);
                         if (!file.exists()){
                             //this file will be added, but does not exist in the local repository.
-                            TeamStatusInfo tsi = getTeamStatusInfo(returnInfo, file);
+                            TeamStatusInfo tsi = returnInfo.get(file);
                             tsi.setStatus(Status.NEEDS_CHECKOUT);
                         }
                     }
@@ -179,6 +179,11 @@ public abstract class AssistContent
         }
     }
     
+    @OnThread(Tag.Any)
+    protected AssistContent()
+    {
+    }
+
     /** The name of the variable or method or type */
     @OnThread(Tag.Any)
     public abstract String getName();
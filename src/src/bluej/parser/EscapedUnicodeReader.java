@@ -43,6 +43,11 @@ public final class EscapedUnicodeReader extends Reader
 {
     Reader sourceReader;
 
+    // Characters read in bulk from the source reader, but not yet processed:
+    private final char[] sourceBuffer = new char[1024];
+    private int sourceBufferPos;
+    private int sourceBufferEnd;
+
     private boolean charIsBuffered;
     private int bufferedChar;
     
@@ -118,7 +123,7 @@ public final class EscapedUnicodeReader extends Reader
         if (rchar == '\\') {
             // This could be the beginning of an escaped unicode sequence,
             // \\uXXXX (with only a single backslash)
-            int nchar = sourceReader.read();
+            int nchar = nextSourceChar();
 
             if (nchar == 'u') {
                 column++; position++;
@@ -141,10 +146,10 @@ public final class EscapedUnicodeReader extends Reader
     {
         // The Java Language Spec specifies that any number of 'u' characters may appear in sequence
         // as part of a unicode escape.
-        int uc = sourceReader.read();
+        int uc = nextSourceChar();
         while (uc == 'u') {
             processChar((char)uc);
-            uc = sourceReader.read();
+            uc = nextSourceChar();
         }
         
         int val = Character.digit((char) uc, 16);
@@ -157,7 +162,7 @@ public final class EscapedUnicodeReader extends Reader
         int i = 0;
         do {
             val *= 0x10;
-            uc = sourceReader.read();
+            uc = nextSourceChar();
             int digitVal = Character.digit((char) uc, 16);
             if (digitVal == -1) {
                 putBuffer(uc);
@@ -173,13 +178,30 @@ public final class EscapedUnicodeReader extends Reader
 
     private int readSourceChar() throws IOException
     {
-        int rchar = sourceReader.read();
+        int rchar = nextSourceChar();
         if (rchar != -1) {
             processChar((char) rchar);
         }
         return rchar;
     }
     
+    /**
+     * Read the next raw character from the source reader (via our buffer), without
+     * processing it.
+     */
+    private int nextSourceChar() throws IOException
+    {
+        if (sourceBufferPos == sourceBufferEnd) {
+            int numRead = sourceReader.read(sourceBuffer, 0, sourceBuffer.length);
+            if (numRead <= 0) {
+                return -1;
+            }
+            sourceBufferPos = 0;
+            sourceBufferEnd = numRead;
+        }
+        return sourceBuffer[sourceBufferPos++];
+    }
+    
     private void processChar(char ch)
     {
         position++;
@@ -45,6 +45,7 @@ public class ImportedTypeCompletion extends AssistContent
     private String javadoc = null; // Can be null, even after extraction
     private final JavadocResolver resolver;
     
+    @OnThread(Tag.Any)
     public ImportedTypeCompletion(Class<?> cls, JavadocResolver resolver)
     {
         // It's important that we take what we need from cls and don't keep a reference,
@@ -0,0 +1,102 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2017  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.parser.lexer;
+
+/**
+ * A table of identifier (and keyword) strings, used by the lexer so that each
+ * distinct word in a source file is only turned into a String once. Lookup is
+ * done directly from the lexer's text buffer, so a word which has been seen
+ * before requires no allocation at all.
+ */
+final class IdentifierTable
+{
+    private String[] table = new String[256];
+    private int size = 0;
+
+    /**
+     * Get the string with the same contents as the given character sequence,
+     * adding it to the table if it is not already present.
+     */
+    public String intern(CharSequence text)
+    {
+        int length = text.length();
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+
+        int mask = table.length - 1;
+        int index = spread(hash) & mask;
+        while (table[index] != null) {
+            String candidate = table[index];
+            if (candidate.hashCode() == hash && contentEquals(candidate, text)) {
+                return candidate;
+            }
+            index = (index + 1) & mask;
+        }
+
+        String str = text.toString();
+        table[index] = str;
+        if (++size * 2 > table.length) {
+            rehash();
+        }
+        return str;
+    }
+
+    private static int spread(int hash)
+    {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean contentEquals(String str, CharSequence text)
+    {
+        int length = str.length();
+        if (length != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (str.charAt(i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Double the size of the table, re-inserting all the existing entries.
+     */
+    private void rehash()
+    {
+        String[] oldTable = table;
+        table = new String[oldTable.length * 2];
+        int mask = table.length - 1;
+        for (String str : oldTable) {
+            if (str != null) {
+                int index = spread(str.hashCode()) & mask;
+                while (table[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = str;
+            }
+        }
+    }
+}
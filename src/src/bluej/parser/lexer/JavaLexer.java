@@ -38,7 +38,8 @@ import bluej.parser.TokenStream;
  */
 public final class JavaLexer implements TokenStream
 {
-    private StringBuffer textBuffer = new StringBuffer(); // text of current token
+    private StringBuilder textBuffer = new StringBuilder(); // text of current token
+    private IdentifierTable identifiers = new IdentifierTable(); // words seen so far
     private EscapedUnicodeReader reader;
     private int rChar; 
     private int beginColumn, beginLine, beginPosition;
@@ -149,13 +150,12 @@ public final class JavaLexer implements TokenStream
         
         if (generateWhitespaceTokens && Character.isWhitespace((char)rChar))
         {
-            StringBuilder whitespaceBuffer = new StringBuilder();
             while (Character.isWhitespace((char)rChar))
             {
-                whitespaceBuffer.append((char)rChar);                
+                textBuffer.append((char)rChar);
                 readNextChar();
             }
-            return makeToken(JavaTokenTypes.WHITESPACE, whitespaceBuffer.toString());
+            return makeToken(JavaTokenTypes.WHITESPACE, textBuffer.toString());
         }
         else
         {        
@@ -200,7 +200,8 @@ public final class JavaLexer implements TokenStream
     private LocatableToken createWordToken(char nextChar)
     {
         populateTextBuffer(nextChar);
-        return makeToken(getWordType(), textBuffer.toString());
+        String text = identifiers.intern(textBuffer);
+        return makeToken(getWordType(text), text);
     }
 
     private void populateTextBuffer(char ch)
@@ -864,9 +865,8 @@ public final class JavaLexer implements TokenStream
         return rChar;
     }
 
-    private int getWordType()
+    private int getWordType(String text)
     {
-        String text=textBuffer.toString();
         Integer i = keywords.get(text);
         if (i == null) {
             return JavaTokenTypes.IDENT;
@@ -21,7 +21,9 @@
  */
 package bluej.parser.lexer;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 import bluej.parser.JavaParser;
@@ -39,8 +41,9 @@ public final class JavaTokenFilter implements TokenStream
     private TokenStream sourceStream;
     private LocatableToken lastComment;
     private LocatableToken cachedToken;
-    private List<LocatableToken> buffer = new LinkedList<LocatableToken>();
-    private LinkedList<LocatableToken> recent = new LinkedList<>();
+    // Pushed-back and looked-ahead tokens; the next token is at the end:
+    private List<LocatableToken> buffer = new ArrayList<LocatableToken>();
+    private Deque<LocatableToken> recent = new ArrayDeque<>();
     private JavaParser parser;
     
     public JavaTokenFilter(TokenStream source)
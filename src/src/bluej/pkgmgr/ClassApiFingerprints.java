@@ -0,0 +1,254 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2016  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.ExceptionsAttribute;
+import javassist.bytecode.FieldInfo;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.SignatureAttribute;
+import bluej.pkgmgr.target.ClassTarget;
+import bluej.utility.Debug;
+
+/**
+ * Records a fingerprint of the API of each class in a package, as of the last time the
+ * class was compiled. The API consists of everything in the class files which another
+ * class could depend on: the non-private fields (including constant values), methods
+ * and constructors, member classes, supertypes and generic signatures.
+ *
+ * <p>When a class is recompiled, its new fingerprint is compared with the recorded one;
+ * the dependents of the class only need to be recompiled if it has changed. The
+ * fingerprints are saved in a file in the package directory, so that they persist between
+ * sessions.
+ */
+public class ClassApiFingerprints
+{
+    /** The name of the file (in the package directory) in which the fingerprints are stored */
+    public static final String FILE_NAME = "bluej.api";
+
+    /** The access flags which affect how other classes may use a class or member */
+    private static final int API_FLAGS = AccessFlag.PUBLIC | AccessFlag.PROTECTED | AccessFlag.PRIVATE
+            | AccessFlag.STATIC | AccessFlag.FINAL | AccessFlag.INTERFACE | AccessFlag.ABSTRACT
+            | AccessFlag.VARARGS | AccessFlag.ANNOTATION | AccessFlag.ENUM;
+
+    private final File file;
+    private final Properties fingerprints = new Properties();
+
+    /**
+     * Create a fingerprint store for the package in the given directory, and load any
+     * previously saved fingerprints.
+     */
+    public ClassApiFingerprints(File packageDir)
+    {
+        file = new File(packageDir, FILE_NAME);
+        if (file.canRead()) {
+            try (InputStream in = new FileInputStream(file)) {
+                fingerprints.load(in);
+            }
+            catch (IOException ioe) {
+                Debug.reportError("Error loading class API fingerprints from " + file, ioe);
+            }
+        }
+    }
+
+    /**
+     * Check whether a fingerprint has been recorded for the given class. If not, we can't
+     * tell whether its API changes when it is recompiled, so its dependents must be
+     * invalidated straight away when it is modified.
+     */
+    public synchronized boolean hasFingerprint(ClassTarget ct)
+    {
+        return fingerprints.containsKey(ct.getIdentifierName());
+    }
+
+    /**
+     * Record the fingerprint of the given (just compiled) class.
+     *
+     * @return true if the API has changed (or might have changed) since the fingerprint
+     *         was last recorded, and the dependents of the class must be recompiled.
+     */
+    public synchronized boolean update(ClassTarget ct)
+    {
+        String name = ct.getIdentifierName();
+        String newFingerprint = computeFingerprint(ct);
+        if (newFingerprint == null) {
+            fingerprints.remove(name);
+            return true;
+        }
+        Object oldFingerprint = fingerprints.setProperty(name, newFingerprint);
+        return ! newFingerprint.equals(oldFingerprint);
+    }
+
+    /**
+     * Forget the fingerprint of a class (because it has been removed or renamed),
+     * and save the change.
+     *
+     * @param name  the (unqualified) name of the class
+     */
+    public synchronized void remove(String name)
+    {
+        if (fingerprints.remove(name) != null) {
+            save();
+        }
+    }
+
+    /**
+     * Save the fingerprints to the package directory.
+     */
+    public synchronized void save()
+    {
+        try (OutputStream out = new FileOutputStream(file)) {
+            fingerprints.store(out, "BlueJ class API fingerprints");
+        }
+        catch (IOException ioe) {
+            Debug.reportError("Error saving class API fingerprints to " + file, ioe);
+        }
+    }
+
+    /**
+     * Compute the API fingerprint of a class from its class file and the class files of
+     * its member classes. Returns null if the class files could not be read.
+     */
+    private static String computeFingerprint(ClassTarget ct)
+    {
+        List<File> classFiles = new ArrayList<File>();
+        File[] innerClassFiles = ct.getInnerClassFiles();
+        if (innerClassFiles != null) {
+            classFiles.addAll(Arrays.asList(innerClassFiles));
+        }
+        Collections.sort(classFiles);
+        classFiles.add(0, ct.getClassFile());
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (File classFile : classFiles) {
+                ClassFile cf;
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(classFile)))) {
+                    cf = new ClassFile(in);
+                }
+
+                // Local and anonymous classes, and private member classes, can't be
+                // used from other classes:
+                String simpleName = cf.getName().substring(cf.getName().lastIndexOf('$') + 1);
+                if (classFile != classFiles.get(0) && (Character.isDigit(simpleName.charAt(0))
+                        || (cf.getInnerAccessFlags() & AccessFlag.PRIVATE) != 0)) {
+                    continue;
+                }
+
+                digest.update(describeClass(cf).getBytes(StandardCharsets.UTF_8));
+            }
+
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        }
+        catch (IOException ioe) {
+            return null;
+        }
+        catch (NoSuchAlgorithmException nsae) {
+            Debug.reportError(nsae);
+            return null;
+        }
+    }
+
+    /**
+     * Produce a canonical description of the API of a single class file.
+     */
+    @SuppressWarnings("unchecked")
+    private static String describeClass(ClassFile cf)
+    {
+        StringBuilder sb = new StringBuilder();
+        int innerFlags = cf.getInnerAccessFlags();
+        sb.append("class ").append(cf.getName()).append(' ').append(cf.getAccessFlags() & API_FLAGS);
+        sb.append(' ').append(innerFlags == -1 ? -1 : innerFlags & API_FLAGS);
+        sb.append(" extends ").append(cf.getSuperclass());
+        sb.append(" implements ").append(String.join(",", cf.getInterfaces()));
+        sb.append(' ').append(getSignature((SignatureAttribute) cf.getAttribute(SignatureAttribute.tag)));
+        sb.append('\n');
+
+        List<String> members = new ArrayList<String>();
+        ConstPool cp = cf.getConstPool();
+        for (FieldInfo fi : (List<FieldInfo>) cf.getFields()) {
+            if (! isApi(fi.getAccessFlags())) {
+                continue;
+            }
+            // Compile-time constant values are copied into dependent classes:
+            int constIndex = fi.getConstantValue();
+            Object constValue = constIndex == 0 ? null : cp.getLdcValue(constIndex);
+            members.add("field " + fi.getName() + " " + (fi.getAccessFlags() & API_FLAGS) + " "
+                    + fi.getDescriptor() + " "
+                    + getSignature((SignatureAttribute) fi.getAttribute(SignatureAttribute.tag))
+                    + " = " + constValue);
+        }
+        for (MethodInfo mi : (List<MethodInfo>) cf.getMethods()) {
+            if (! isApi(mi.getAccessFlags()) || mi.isStaticInitializer()) {
+                continue;
+            }
+            ExceptionsAttribute exceptions = mi.getExceptionsAttribute();
+            members.add("method " + mi.getName() + " " + (mi.getAccessFlags() & API_FLAGS) + " "
+                    + mi.getDescriptor() + " "
+                    + getSignature((SignatureAttribute) mi.getAttribute(SignatureAttribute.tag))
+                    + " throws " + (exceptions == null ? "" : String.join(",", exceptions.getExceptions())));
+        }
+
+        // Member order in the class file follows the source; it doesn't affect the API:
+        Collections.sort(members);
+        for (String member : members) {
+            sb.append(member).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Check whether a member with the given access flags is part of the API.
+     */
+    private static boolean isApi(int accessFlags)
+    {
+        return (accessFlags & (AccessFlag.PRIVATE | AccessFlag.SYNTHETIC)) == 0;
+    }
+
+    private static String getSignature(SignatureAttribute attr)
+    {
+        return attr == null ? "" : attr.getSignature();
+    }
+}
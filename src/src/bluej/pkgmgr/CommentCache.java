@@ -27,14 +27,30 @@ import bluej.utility.GeneralCache;
 
 /**
  * A cache for class comments (javadoc/parameter names). Adding new entries to the cache
- * will purge old entries, if there are too many.
+ * will purge old entries, if there are too many, or if the total size of the cached
+ * comments becomes too large.
  * 
  * @author Davin McCall
  */
 public class CommentCache extends GeneralCache<String,Properties>
 {
+    /** The maximum total size (in characters) of the cached comments */
+    private static final long MAX_COMMENT_CHARS = 4 * 1024 * 1024;
+    
     public CommentCache()
     {
-        super(20);
+        super(200, MAX_COMMENT_CHARS, CommentCache::getCommentChars);
+    }
+    
+    /**
+     * Get the approximate size of a set of comments, in characters.
+     */
+    private static long getCommentChars(Properties comments)
+    {
+        long chars = 0;
+        for (String name : comments.stringPropertyNames()) {
+            chars += name.length() + comments.getProperty(name).length();
+        }
+        return chars;
     }
 }
@@ -0,0 +1,291 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2017  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.ZipFile;
+
+import bluej.Config;
+import bluej.utility.Debug;
+import bluej.utility.FileUtility;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A store for the comments (javadoc and parameter names) extracted from source
+ * archives such as the JDK's src.zip and library source jars.
+ *
+ * <p>The contents of an archive don't change (a new version of the JDK or library
+ * is a different file, or at least has a different size or modification time),
+ * so the comments extracted from each source file are saved in the user
+ * configuration directory and re-used in later sessions, rather than the source
+ * being parsed again. The comments saved for older versions of an archive are
+ * deleted when comments are first saved for a new version.
+ *
+ * <p>The archives themselves are kept open between lookups, so that the archive
+ * directory isn't read again for each class. An archive is only closed once no
+ * lookup is using it.
+ */
+@OnThread(Tag.Any)
+class JavadocStore
+{
+    private static JavadocStore instance;
+
+    private final File storeDir;
+    /** Archives which are currently open */
+    private final Map<File, OpenArchive> openArchives = new HashMap<File, OpenArchive>();
+
+    /**
+     * Reads from an open archive.
+     */
+    public static interface ArchiveReader<T>
+    {
+        T read(ZipFile zipFile) throws IOException;
+    }
+
+    /**
+     * An open archive. Protected by the JavadocStore's monitor.
+     */
+    private static class OpenArchive
+    {
+        private final ZipFile zipFile;
+        /** The version (see getArchiveKey) which was opened */
+        private final String key;
+        /** The number of lookups currently reading the archive */
+        private int users;
+        /** Whether the archive should be closed once it has no users */
+        private boolean retired;
+
+        private OpenArchive(ZipFile zipFile, String key)
+        {
+            this.zipFile = zipFile;
+            this.key = key;
+        }
+    }
+
+    private JavadocStore(File storeDir)
+    {
+        this.storeDir = storeDir;
+    }
+
+    /**
+     * Get the javadoc store shared by all projects.
+     */
+    public static synchronized JavadocStore getInstance()
+    {
+        if (instance == null) {
+            instance = new JavadocStore(new File(Config.getUserConfigDir(), "javadoc-cache"));
+        }
+        return instance;
+    }
+
+    /**
+     * Get the previously saved comments for a source file in an archive.
+     *
+     * @param archive    The archive (jar or zip file)
+     * @param entryName  The name of the source file entry within the archive
+     * @return  The comments, or null if none have been saved
+     */
+    public synchronized Properties get(File archive, String entryName)
+    {
+        File file = getStoreFile(archive, entryName);
+        if (! file.isFile()) {
+            return null;
+        }
+
+        Properties comments = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            comments.load(in);
+            return comments;
+        }
+        catch (IOException ioe) {
+            return null;
+        }
+    }
+
+    /**
+     * Save the comments extracted from a source file in an archive.
+     *
+     * @param archive    The archive (jar or zip file)
+     * @param entryName  The name of the source file entry within the archive
+     * @param comments   The comments, as produced by ClassInfo.getComments()
+     */
+    public synchronized void put(File archive, String entryName, Properties comments)
+    {
+        File file = getStoreFile(archive, entryName);
+        File dir = file.getParentFile();
+        if (! dir.isDirectory()) {
+            // A new archive, or a new version of one:
+            pruneOldVersions(archive);
+            if (! dir.mkdirs()) {
+                return;
+            }
+        }
+
+        // Write to a temporary file and then rename, so that another BlueJ instance
+        // never sees a partly written file:
+        File tmpFile = new File(dir, file.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmpFile)) {
+            comments.store(out, null);
+        }
+        catch (IOException ioe) {
+            Debug.reportError("Error saving javadoc cache file " + tmpFile, ioe);
+            tmpFile.delete();
+            return;
+        }
+
+        file.delete();
+        if (! tmpFile.renameTo(file)) {
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * Read from the given archive. The archive is kept open for later lookups (until
+     * closeArchives() is called, or the archive is modified), and is not closed while
+     * the reader is using it.
+     */
+    public <T> T readArchive(File archive, ArchiveReader<T> reader) throws IOException
+    {
+        OpenArchive open = acquire(archive);
+        try {
+            return reader.read(open.zipFile);
+        }
+        finally {
+            release(open);
+        }
+    }
+
+    private synchronized OpenArchive acquire(File archive) throws IOException
+    {
+        String key = getArchiveKey(archive);
+        OpenArchive open = openArchives.get(archive);
+        if (open != null && ! key.equals(open.key)) {
+            // The archive has been modified since we opened it:
+            openArchives.remove(archive);
+            retire(open);
+            open = null;
+        }
+
+        if (open == null) {
+            open = new OpenArchive(new ZipFile(archive), key);
+            openArchives.put(archive, open);
+        }
+        open.users++;
+        return open;
+    }
+
+    private synchronized void release(OpenArchive open)
+    {
+        open.users--;
+        if (open.retired && open.users == 0) {
+            closeQuietly(open.zipFile);
+        }
+    }
+
+    /**
+     * Close an archive as soon as no lookup is using it. Must be called while
+     * synchronized on this store.
+     */
+    private void retire(OpenArchive open)
+    {
+        open.retired = true;
+        if (open.users == 0) {
+            closeQuietly(open.zipFile);
+        }
+    }
+
+    /**
+     * Close all open archives (those in use are closed once the lookups using them
+     * have finished). They will be re-opened if needed.
+     */
+    public synchronized void closeArchives()
+    {
+        for (OpenArchive open : openArchives.values()) {
+            retire(open);
+        }
+        openArchives.clear();
+    }
+
+    private static void closeQuietly(ZipFile zipFile)
+    {
+        try {
+            zipFile.close();
+        }
+        catch (IOException ioe) {}
+    }
+
+    /**
+     * Get the file in which the comments for a particular archive entry are saved.
+     */
+    private File getStoreFile(File archive, String entryName)
+    {
+        File archiveDir = new File(storeDir, getArchiveKey(archive));
+        return new File(archiveDir, entryName.replace('/', '.') + ".properties");
+    }
+
+    /**
+     * Delete the comments saved for any version of the given archive other than the
+     * current one.
+     */
+    private void pruneOldVersions(File archive)
+    {
+        String prefix = getArchivePrefix(archive);
+        String key = getArchiveKey(archive);
+        File[] dirs = storeDir.listFiles();
+        if (dirs == null) {
+            return;
+        }
+        for (File dir : dirs) {
+            if (dir.isDirectory() && dir.getName().startsWith(prefix) && ! dir.getName().equals(key)) {
+                FileUtility.deleteDir(dir);
+            }
+        }
+    }
+
+    /**
+     * Get a key identifying a particular version of an archive. This is used as a
+     * directory name in the store.
+     */
+    private static String getArchiveKey(File archive)
+    {
+        File absArchive = archive.getAbsoluteFile();
+        return getArchivePrefix(archive) + absArchive.length() + "-" + absArchive.lastModified();
+    }
+
+    /**
+     * Get the part of the archive key which is the same for all versions of an archive.
+     */
+    private static String getArchivePrefix(File archive)
+    {
+        File absArchive = archive.getAbsoluteFile();
+        return absArchive.getName() + "-" + Integer.toHexString(absArchive.getPath().hashCode()) + "-";
+    }
+}
@@ -250,6 +250,10 @@ public final class Package
     /** File pointing at the directory for this package */
     @OnThread(Tag.Any)
     private File dir;
+    
+    /** The API fingerprints of the classes in this package, as of their last compilation */
+    @OnThread(Tag.Any)
+    private ClassApiFingerprints apiFingerprints;
 
     /* ------------------- end of field declarations ------------------- */
 
@@ -298,6 +302,7 @@ public final class Package
     {
         callHistory = new CallHistory(HISTORY_LENGTH);
         dir = new File(project.getProjectDir(), getRelativePath().getPath());
+        apiFingerprints = new ClassApiFingerprints(dir);
         load();
     }
 
@@ -834,6 +839,8 @@ public final class Package
         // Update class states. We do this before updating roles (or anything else
         // which analyses the source) because the analysis does symbol resolution, and
         // that depends on having the correct compiled state.
+        // Classes with a recorded API fingerprint don't invalidate their dependents;
+        // that only happens if the fingerprint changes when they are recompiled.
         LinkedList<ClassTarget> invalidated = new LinkedList<ClassTarget>();
         for (Target target : targetsCopy) {
 
@@ -841,7 +848,9 @@ public final class Package
                 ClassTarget ct = (ClassTarget) target;
                 if (ct.isCompiled() && !ct.upToDate()) {
                     ct.setState(State.NEEDS_COMPILE);
-                    invalidated.add(ct);
+                    if (! apiFingerprints.hasFingerprint(ct)) {
+                        invalidated.add(ct);
+                    }
                 }
             }
         }
@@ -1597,6 +1606,54 @@ public final class Package
         }
     }
 
+    /**
+     * Compile the dependents of classes whose API has changed during compilation.
+     * The dependents are compiled in a new job, which is queued behind the current one.
+     * 
+     * @return  true if a compilation job was queued; false if there was nothing to compile
+     *          (or the sources could not be saved), in which case the observer is not notified.
+     */
+    private boolean compileDependents(Collection<ClassTarget> dependents, FXCompileObserver observer,
+            CompileReason reason, CompileType type)
+    {
+        Set<ClassTarget> toCompile = new HashSet<ClassTarget>();
+        try {
+            for (ClassTarget ct : dependents) {
+                if (ct.hasSourceCode() && ! ct.isQueued()) {
+                    ct.markModified();
+                    ct.ensureSaved();
+                    ct.setQueued(true);
+                    toCompile.add(ct);
+                }
+            }
+        }
+        catch (IOException ioe) {
+            Debug.log("Failed to save source before compile; " + ioe.getLocalizedMessage());
+            for (ClassTarget ct : toCompile) {
+                ct.setQueued(false);
+            }
+            return false;
+        }
+        
+        if (toCompile.isEmpty()) {
+            return false;
+        }
+        
+        project.removeClassLoader();
+        project.newRemoteClassLoaderLeavingBreakpoints();
+        doCompile(toCompile, observer, reason, type);
+        return true;
+    }
+
+    /**
+     * Get the record of the API fingerprints of the classes in this package.
+     */
+    @OnThread(Tag.Any)
+    public ClassApiFingerprints getApiFingerprints()
+    {
+        return apiFingerprints;
+    }
+
     /**
      * Returns true if the debugger is not busy. This is true if it is either
      * IDLE, or has not been completely constructed (NOTREADY).
@@ -1749,6 +1806,9 @@ public final class Package
     public synchronized void removeTarget(Target t)
     {
         targets.remove(t.getIdentifierName());
+        if (t instanceof ClassTarget) {
+            apiFingerprints.remove(t.getIdentifierName());
+        }
         t.setRemoved();
         if (editor != null)
             editor.graphChanged();
@@ -1767,6 +1827,10 @@ public final class Package
         }
         targets.remove(oldIdentifier);
         targets.add(newIdentifier, t);
+        if (t instanceof ClassTarget) {
+            // Recorded again when the class is next compiled:
+            apiFingerprints.remove(oldIdentifier);
+        }
     }
 
     /**
@@ -2502,6 +2566,8 @@ public final class Package
         implements FXCompileObserver
     {
         protected CompileObserver chainObserver;
+        /** The reason for the compilation currently being observed */
+        private CompileReason compileReason;
         
         /**
          * Construct a new QuietPackageCompileObserver. The chained observer (if
@@ -2552,6 +2618,8 @@ public final class Package
         @Override
         public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
         {
+            compileReason = reason;
+            
             // Send a compilation starting event to extensions.
             CompileEvent aCompileEvent = new CompileEvent(CompileEvent.COMPILE_START_EVENT, type.keepClasses(), Utility.mapList(Arrays.asList(sources), CompileInputFile::getJavaCompileInputFile).toArray(new File[0]));
             ExtensionsManager.getInstance().delegateEvent(aCompileEvent);
@@ -2602,6 +2670,10 @@ public final class Package
         @Override
         public void endCompile(CompileInputFile[] sources, boolean successful, CompileType type, int compilationSequence)
         {
+            // Classes which depend on a class whose API changed, and which weren't part of this compile:
+            Set<ClassTarget> apiDependents = new HashSet<ClassTarget>();
+            Set<ClassTarget> compiledTargets = new HashSet<ClassTarget>();
+            
             for (int i = 0; i < sources.length; i++) {
                 String filename = sources[i].getJavaCompileInputFile().getPath();
 
@@ -2618,8 +2690,20 @@ public final class Package
 
                 boolean newCompiledState = successful;
 
+                compiledTargets.add(t);
                 if (successful) {
                     t.endCompile();
+                    
+                    if (type.keepClasses() && apiFingerprints.update(t)) {
+                        for (Dependency d : t.dependentsAsList()) {
+                            if (d.getFrom() instanceof ClassTarget) {
+                                ClassTarget dependent = (ClassTarget) d.getFrom();
+                                if (dependent.isCompiled()) {
+                                    apiDependents.add(dependent);
+                                }
+                            }
+                        }
+                    }
 
                     //check if there already exists a class in a library with that name 
                     Class<?> c = loadClass(getQualifiedName(t.getIdentifierName()));
@@ -2669,6 +2753,41 @@ public final class Package
                 if (successful && t.editorOpen())
                     t.getEditor().setCompiled(true);
             }
+            if (successful && type.keepClasses())
+            {
+                apiFingerprints.save();
+            }
+            apiDependents.removeAll(compiledTargets);
+            if (! apiDependents.isEmpty())
+            {
+                // The dependents are part of this compilation as far as anyone watching is
+                // concerned, so only report it finished once they have been compiled too:
+                CompileObserver finishObserver = new CompileObserver() {
+                    @Override
+                    public void startCompile(CompileInputFile[] depSources, CompileReason reason, CompileType depType, int depSequence) { }
+                    @Override
+                    public void compilerMessage(Diagnostic diagnostic, CompileType depType) { }
+                    @Override
+                    public void endCompile(CompileInputFile[] depSources, boolean depSuccessful, CompileType depType, int depSequence)
+                    {
+                        finishCompile(sources, successful && depSuccessful, type, compilationSequence);
+                    }
+                };
+                if (compileDependents(apiDependents, newDependentsObserver(finishObserver), compileReason, type))
+                {
+                    return;
+                }
+            }
+            
+            finishCompile(sources, successful, type, compilationSequence);
+        }
+        
+        /**
+         * Finish observing a compilation: update the status, notify extensions that the
+         * compilation is done, and notify the chained observer (if any).
+         */
+        private void finishCompile(CompileInputFile[] sources, boolean successful, CompileType type, int compilationSequence)
+        {
             if (type.keepClasses())
             {
                 setStatus(compileDone);
@@ -2684,6 +2803,17 @@ public final class Package
                 chainObserver.endCompile(sources, successful, type, compilationSequence);
             }
         }
+        
+        /**
+         * Create an observer for the compilation of dependent classes whose dependencies'
+         * API has changed during the compilation this observer is watching.
+         * 
+         * @param chainObserver  The observer to notify when the dependents' compilation ends
+         */
+        protected FXCompileObserver newDependentsObserver(CompileObserver chainObserver)
+        {
+            return new QuietPackageCompileObserver(chainObserver);
+        }
     }
     
     private static class MisspeltMethodChecker implements MessageCalculator
@@ -2808,6 +2938,12 @@ public final class Package
             super(chainObserver);
         }
         
+        @Override
+        protected FXCompileObserver newDependentsObserver(CompileObserver chainObserver)
+        {
+            return new PackageCompileObserver(chainObserver);
+        }
+        
         @Override
         public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
         {
@@ -175,6 +175,14 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
     @OnThread(value = Tag.Any, requireSynchronized = true)
     private boolean inTestMode = false;
     private BPClassLoader currentClassLoader;
+    // Names which the class loader in missingClassesLoader has failed to load. Name
+    // resolution looks up many names which aren't classes, and a failed lookup has
+    // to search the whole classpath, so it's worth remembering the failures.
+    // Classes are loaded from several threads; both are protected by missingClasses:
+    @OnThread(Tag.Any)
+    private final Set<String> missingClasses = new HashSet<String>();
+    @OnThread(Tag.Any)
+    private BPClassLoader missingClassesLoader;
     private List<URL> libraryUrls;
     // the TeamSettingsController for this project
     private TeamSettingsController teamSettingsController = null;
@@ -576,6 +584,11 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
         }
 
         project.removeAllInspectors();
+        // Release any library source archives opened to find javadoc:
+        JavadocStore.getInstance().closeArchives();
+        if (project.teamSettingsController != null) {
+            project.teamSettingsController.closeWorkingCopy();
+        }
         project.getDebugger().removeDebuggerListener(project);
         project.getDebugger().close(false);
 
@@ -1676,15 +1689,28 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
      */
     public Class<?> loadClass(String className)
     {
+        BPClassLoader loader = getClassLoader();
+        synchronized (missingClasses) {
+            if (loader != missingClassesLoader) {
+                missingClasses.clear();
+                missingClassesLoader = loader;
+            }
+            else if (missingClasses.contains(className)) {
+                return null;
+            }
+        }
+        
         try {
-            return getClassLoader().loadClass(className);
+            return loader.loadClass(className);
         }
         catch (ClassNotFoundException e) {
+            addMissingClass(loader, className);
             return null;
         }
         catch (SecurityException se) {
             // We can get a security exception, even without a security manager installed,
             // if we try to load a class in the protected java.* namespace.            
+            addMissingClass(loader, className);
             return null;
         }
         catch (LinkageError le) {
@@ -1692,6 +1718,20 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
         }
     }
 
+    /**
+     * Remember that the given loader failed to load a class; unless the loader has
+     * been replaced in the meantime, since the new one may be able to load it.
+     */
+    @OnThread(Tag.Any)
+    private void addMissingClass(BPClassLoader loader, String className)
+    {
+        synchronized (missingClasses) {
+            if (loader == missingClassesLoader) {
+                missingClasses.add(className);
+            }
+        }
+    }
+
     @OnThread(value = Tag.Any, ignoreParent = true)
     public synchronized boolean inTestMode()
     {
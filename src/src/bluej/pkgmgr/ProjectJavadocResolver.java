@@ -40,7 +40,6 @@ import bluej.views.View;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.net.URL;
@@ -55,7 +54,6 @@ import java.util.StringTokenizer;
 import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 /**
  * Resolves javadoc from classes within a project.
@@ -121,18 +119,7 @@ public class ProjectJavadocResolver implements JavadocResolver
             return;
         }
         
-        Properties comments = commentCache.get(declName);
-        if (comments == null) {
-            ClassInfo classInfo = getClassInfoFromSource(declName);
-            if (classInfo != null)
-                comments = classInfo.getComments(); 
-            if (comments == null) {
-                // Record a blank so we don't bother looking next time:
-                commentCache.put(declName, new Properties());
-                return;
-            }
-            commentCache.put(declName, comments);
-        }
+        Properties comments = getComments(declName);
 
         // Find the comment for the particular method we want
         for (int i = 0; ; i++) {
@@ -266,102 +253,6 @@ public class ProjectJavadocResolver implements JavadocResolver
         }
     }
 
-    /**
-     * Find the javadoc for a given class (target) by searching the project source path.
-     * In particular, this normally includes the JDK source. When source for the required
-     * class is found, it is parsed to extract comments.
-     */
-    private ClassInfo getClassInfoFromSource(String target)
-    {
-        List<DocPathEntry> sourcePath = project.getSourcePath();
-        String pkg = JavaNames.getPrefix(target);
-        String entName = target.replace('.', '/') + "." + SourceType.Java.toString().toLowerCase();
-        String entNameFs = target.replace('.', File.separatorChar) + "." + SourceType.Java.toString().toLowerCase();
-        EntityResolver resolver = new PackageResolver(project.getEntityResolver(), pkg);
-        
-        for (DocPathEntry pathEntry : sourcePath) {
-            File jarFile = pathEntry.getFile();
-            if (jarFile.isFile()) {
-                String fullEntryName = pathEntry.getPathPrefix();
-                if (fullEntryName.length() != 0 && !fullEntryName.endsWith("/")) {
-                    fullEntryName += "/";
-                }
-                fullEntryName += entName;
-                Reader r = null;
-                try (ZipFile zipFile = new ZipFile(jarFile)) {
-                    ZipEntry zipEnt = zipFile.getEntry(fullEntryName);
-                    if (zipEnt != null) {
-                        InputStream zeis = zipFile.getInputStream(zipEnt);
-                        r = new InputStreamReader(zeis, project.getProjectCharset());
-                        ClassInfo info = JavadocParser.parse(r, resolver, null);
-                        if (info == null) {
-                            return null;
-                        }
-                        return info;
-                    }
-                }
-                catch (IOException ioe) {}
-                finally {
-                    if (r != null) {
-                        try {
-                            r.close();
-                        }
-                        catch (IOException e) {}
-                    }
-                }
-            }
-            else if (jarFile.isDirectory()) {
-                File base = jarFile;
-                String prefix = pathEntry.getPathPrefix();
-                if (prefix != null && !prefix.isEmpty()) {
-                    base = new File(base, prefix);
-                }
-                
-                File srcFile = new File(base, entNameFs);
-                FileInputStream fis = null;
-                try {
-                    if (srcFile.canRead()) {
-                        fis = new FileInputStream(srcFile);
-                        Reader r = new InputStreamReader(fis, project.getProjectCharset());
-                        ClassInfo info = JavadocParser.parse(r, resolver, null);
-                        r.close();
-                        if (info == null) {
-                            return null;
-                        }
-                        return info;
-                    }
-                }
-                catch (IOException ioe) {
-                    if (fis != null) {
-                        try {
-                            fis.close();
-                        }
-                        catch (IOException e) {}
-                    }
-                }
-            }
-        }
-        
-        // Try and load the source from the class path. This allows source to be bundled in
-        // with the classes.
-        String targetName = target.replace('.', '/') + "." + SourceType.Java.toString().toLowerCase();
-        URL srcUrl = project.getClassLoader().findResource(targetName);
-        if (srcUrl != null) {
-            try {
-                Reader r = new InputStreamReader(srcUrl.openStream(), project.getProjectCharset());
-                ClassInfo info = JavadocParser.parse(r, resolver, null);
-                if (info != null) {
-                    return info;
-                }
-            }
-            catch (IOException ioe) {
-                Debug.message("I/O exception while trying to retrieve javadoc for " + target);
-            }
-        }
-        
-        return null;
-    }
-    
     /**
      * Build a method signature from a MethodReflective.
      */
@@ -399,18 +290,39 @@ public class ProjectJavadocResolver implements JavadocResolver
         return sig;
     }
     
+    /**
+     * Get the comments for a given class, from the comment cache if possible, or
+     * otherwise from the source. If no comments can be found, an empty set of
+     * comments is returned (and cached, so we don't bother looking next time).
+     */
+    private Properties getComments(String target)
+    {
+        Properties comments = commentCache.get(target);
+        if (comments == null) {
+            comments = getCommentsFromSource(target);
+            if (comments == null) {
+                comments = new Properties();
+            }
+            commentCache.put(target, comments);
+        }
+        return comments;
+    }
+
     /**
      * Find the javadoc for a given class (target) by searching the project source path.
      * In particular, this normally includes the JDK source. When source for the required
-     * class is found, it is parsed to extract comments.
+     * class is found, it is parsed to extract comments. Comments extracted from source
+     * archives are saved in the javadoc store, so that each archive entry is only
+     * parsed once.
      */
     private Properties getCommentsFromSource(String target)
     {
         List<DocPathEntry> sourcePath = project.getSourcePath();
         String pkg = JavaNames.getPrefix(target);
-        String entName = target.replace('.', '/') + ".java";
-        String entNameFs = target.replace('.', File.separatorChar) + ".java";
+        String entName = target.replace('.', '/') + "." + SourceType.Java.toString().toLowerCase();
+        String entNameFs = target.replace('.', File.separatorChar) + "." + SourceType.Java.toString().toLowerCase();
         EntityResolver resolver = new PackageResolver(project.getEntityResolver(), pkg);
+        JavadocStore store = JavadocStore.getInstance();
         
         for (DocPathEntry pathEntry : sourcePath) {
             File jarFile = pathEntry.getFile();
@@ -420,28 +332,32 @@ public class ProjectJavadocResolver implements JavadocResolver
                     fullEntryName += "/";
                 }
                 fullEntryName += entName;
-                Reader r = null;
-                try (ZipFile zipFile = new ZipFile(jarFile)) {
-                    ZipEntry zipEnt = zipFile.getEntry(fullEntryName);
-                    if (zipEnt != null) {
-                        InputStream zeis = zipFile.getInputStream(zipEnt);
-                        r = new InputStreamReader(zeis, project.getProjectCharset());
-                        ClassInfo info = JavadocParser.parse(r, resolver, null);
-                        if (info == null) {
+                
+                Properties stored = store.get(jarFile, fullEntryName);
+                if (stored != null) {
+                    return stored;
+                }
+                
+                final String entryName = fullEntryName;
+                try {
+                    Properties comments = store.readArchive(jarFile, zipFile -> {
+                        ZipEntry zipEnt = zipFile.getEntry(entryName);
+                        if (zipEnt == null) {
                             return null;
                         }
-                        return info.getComments();
-                    }
-                }
-                catch (IOException ioe) {}
-                finally {
-                    if (r != null) {
-                        try {
-                            r.close();
+                        Properties parsed;
+                        try (Reader r = new InputStreamReader(zipFile.getInputStream(zipEnt), project.getProjectCharset())) {
+                            parsed = parseComments(r, resolver);
                         }
-                        catch (IOException e) {}
+                        // Save even if there are no comments, so we don't parse again:
+                        return parsed == null ? new Properties() : parsed;
+                    });
+                    if (comments != null) {
+                        store.put(jarFile, entryName, comments);
+                        return comments;
                     }
                 }
+                catch (IOException ioe) {}
             }
             else if (jarFile.isDirectory()) {
                 File base = jarFile;
@@ -451,40 +367,23 @@ public class ProjectJavadocResolver implements JavadocResolver
                 }
                 
                 File srcFile = new File(base, entNameFs);
-                FileInputStream fis = null;
-                try {
-                    if (srcFile.canRead()) {
-                        fis = new FileInputStream(srcFile);
-                        Reader r = new InputStreamReader(fis, project.getProjectCharset());
-                        ClassInfo info = JavadocParser.parse(r, resolver, null);
-                        r.close();
-                        if (info == null) {
-                            return null;
-                        }
-                        return info.getComments();
-                    }
-                }
-                catch (IOException ioe) {
-                    if (fis != null) {
-                        try {
-                            fis.close();
-                        }
-                        catch (IOException e) {}
+                if (srcFile.canRead()) {
+                    try (Reader r = new InputStreamReader(new FileInputStream(srcFile), project.getProjectCharset())) {
+                        return parseComments(r, resolver);
                     }
+                    catch (IOException ioe) {}
                 }
             }
         }
         
         // Try and load the source from the class path. This allows source to be bundled in
         // with the classes.
-        String targetName = target.replace('.', '/') + ".java";
-        URL srcUrl = project.getClassLoader().findResource(targetName);
+        URL srcUrl = project.getClassLoader().findResource(entName);
         if (srcUrl != null) {
-            try {
-                Reader r = new InputStreamReader(srcUrl.openStream(), project.getProjectCharset());
-                ClassInfo info = JavadocParser.parse(r, resolver, null);
-                if (info != null) {
-                    return info.getComments();
+            try (Reader r = new InputStreamReader(srcUrl.openStream(), project.getProjectCharset())) {
+                Properties comments = parseComments(r, resolver);
+                if (comments != null) {
+                    return comments;
                 }
             }
             catch (IOException ioe) {
@@ -495,18 +394,34 @@ public class ProjectJavadocResolver implements JavadocResolver
         return null;
     }
     
+    /**
+     * Parse a source file and extract its comments.
+     * 
+     * @return  the comments, or null if the source could not be parsed.
+     */
+    private static Properties parseComments(Reader r, EntityResolver resolver)
+    {
+        ClassInfo info = JavadocParser.parse(r, resolver, null);
+        return info == null ? null : info.getComments();
+    }
+    
     @Override
     public String getJavadoc(String className)
     {
-        ClassInfo ci = getClassInfoFromSource(className);
-        
-        if (ci == null)
-            return null;
-        
-        return ci.getCommentsAsList().stream()
-                    .filter(sc -> ci.getName().equals(sc.target))
-                    .map(sc -> sc.comment)
-                    .filter(c -> c != null)
-                    .findFirst().orElse(null);
-   }
+        // The class comment's target is the (unqualified) class name:
+        Properties comments = getComments(className);
+        String classTarget = JavaNames.getBase(className);
+        for (int i = 0; ; i++) {
+            String comtarget = comments.getProperty("comment" + i + ".target");
+            if (comtarget == null) {
+                return null;
+            }
+            if (comtarget.equals(classTarget)) {
+                String text = comments.getProperty("comment" + i + ".text");
+                if (text != null) {
+                    return text;
+                }
+            }
+        }
+    }
 }
@@ -36,7 +36,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
@@ -92,6 +94,27 @@ public class TestRunnerThread extends Thread
 
     @OnThread(value = Tag.Unique, ignoreParent = true)
     public void run()
+    {
+        int workers = Config.getPropInteger("bluej.testing.workers", 0);
+        if (methodName == null && workers > 1) {
+            runInWorkers(workers);
+        }
+        else {
+            runInDebugVM();
+        }
+
+        // Finally, tell the PkgMgrFrame that we're done:
+        Platform.runLater(() -> {
+            if (methodName == null)
+                pmf.endTestRun();
+        });
+    }
+
+    /**
+     * Run the tests one at a time in the debug VM.
+     */
+    @OnThread(Tag.Unique)
+    private void runInDebugVM()
     {
         while (testIterator.hasNext()) {
 
@@ -127,12 +150,55 @@ public class TestRunnerThread extends Thread
                 Platform.runLater(() -> showNextResult(lastResult));
             }
         }
+    }
 
-        // Finally, tell the PkgMgrFrame that we're done:
+    /**
+     * Run all the tests of all the targets, with the test classes shared out between
+     * the given number of worker VMs.  If the tests can't be run in worker VMs (for
+     * instance, because breakpoints are set) they are run in the debug VM instead.
+     */
+    @OnThread(Tag.Unique)
+    private void runInWorkers(int workers)
+    {
+        List<ClassTarget> targets = new ArrayList<ClassTarget>();
+        testIterator.forEachRemaining(targets::add);
+
+        // Find the tests for all the targets in one go:
+        CompletableFuture<Map<String, List<String>>> testsFuture = new CompletableFuture<>();
         Platform.runLater(() -> {
-            if (methodName == null)
-                pmf.endTestRun();
+            Map<String, List<String>> tests = new LinkedHashMap<String, List<String>>();
+            for (ClassTarget ct : targets) {
+                CompletableFuture<List<String>> methodsFuture = new CompletableFuture<>();
+                startTestFindMethods(ct, methodsFuture);
+                List<String> methods = methodsFuture.getNow(Collections.emptyList());
+                if (! methods.isEmpty()) {
+                    tests.put(ct.getQualifiedName(), methods);
+                }
+            }
+            testsFuture.complete(tests);
         });
+
+        Map<String, List<String>> tests;
+        try
+        {
+            tests = testsFuture.get();
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            Debug.reportError(e);
+            return;
+        }
+
+        boolean ran = project.getDebugger().runTestsInWorkers(tests, workers,
+                result -> Platform.runLater(() -> showNextResult(result)));
+        if (! ran) {
+            for (Map.Entry<String, List<String>> test : tests.entrySet()) {
+                for (String method : test.getValue()) {
+                    DebuggerTestResult lastResult = project.getDebugger().runTestMethod(test.getKey(), method);
+                    Platform.runLater(() -> showNextResult(lastResult));
+                }
+            }
+        }
     }
 
     @OnThread(Tag.FXPlatform)
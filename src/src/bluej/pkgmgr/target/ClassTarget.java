@@ -1222,7 +1222,19 @@ public class ClassTarget extends DependentTarget
     @Override
     public void modificationEvent(Editor editor)
     {
-        invalidate();
+        // If we know the API of the class as last compiled, the dependents only need
+        // to be invalidated if the API turns out to have changed when we recompile:
+        if (getPackage().getApiFingerprints().hasFingerprint(this))
+        {
+            if (hasSourceCode())
+            {
+                markModified();
+            }
+        }
+        else
+        {
+            invalidate();
+        }
         removeBreakpoints();
         if (getPackage().getProject().getDebugger() != null)
         {
@@ -0,0 +1,67 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2017  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.runtime;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The class loader for user classes in the debug VM. As well as loading classes
+ * from the project class path, it can define classes whose class files are
+ * supplied by BlueJ (shell classes which have been compiled in memory). These
+ * are defined by this loader so that they are in the same runtime package as
+ * the user's classes, and can access their package-private members.
+ */
+public class BJClassLoader extends URLClassLoader
+{
+    /** Class files which have been supplied but not yet loaded, by binary name */
+    private final Map<String, byte[]> suppliedClasses = new HashMap<String, byte[]>();
+
+    public BJClassLoader(URL [] urls)
+    {
+        super(urls);
+    }
+
+    /**
+     * Supply the class file for a class. The class will be defined when it is
+     * first loaded.
+     */
+    public synchronized void addClass(String name, byte [] classFile)
+    {
+        suppliedClasses.put(name, classFile);
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException
+    {
+        byte [] classFile;
+        synchronized (this) {
+            classFile = suppliedClasses.remove(name);
+        }
+        if (classFile != null) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+        return super.findClass(name);
+    }
+}
@@ -35,7 +35,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -100,6 +100,11 @@ public class ExecServer
     public static String [] parameterTypes;
     public static Object [] arguments;
     public static int execAction = -1;   // EXEC_SHELL, TEST_SETUP or TEST_RUN
+    public static String [] invokeArguments;
+    public static String invokeScopeId;
+    public static String invokeTarget;
+    public static String [] shellClassNames;
+    public static String [] shellClassFiles;
     
     public static Object methodReturn;
     public static Class<?> executedClass;
@@ -112,12 +117,19 @@ public class ExecServer
     public static final String PARAMETER_TYPES_NAME = "parameterTypes";
     public static final String ARGUMENTS_NAME = "arguments";
     public static final String EXEC_ACTION_NAME = "execAction";
+    public static final String INVOKE_ARGUMENTS_NAME = "invokeArguments";
+    public static final String INVOKE_SCOPE_ID_NAME = "invokeScopeId";
+    public static final String INVOKE_TARGET_NAME = "invokeTarget";
+    public static final String SHELL_CLASS_NAMES_NAME = "shellClassNames";
+    public static final String SHELL_CLASS_FILES_NAME = "shellClassFiles";
     public static final String METHOD_RETURN_NAME = "methodReturn";
     public static final String EXCEPTION_NAME = "exception";
     public static final String EXECUTED_CLASS_NAME = "executedClass";
 
     // Possible actions for the main thread
-    public static final int EXEC_SHELL = 0;  // Execute a shell class
+    public static final int EXEC_SHELL = 0;  // Execute a shell class. If shellClassNames
+        // is set, the class files of the shell class (and its inner classes) are
+        // supplied in shellClassFiles, each as a string of ISO-8859-1 characters
     public static final int TEST_SETUP = 1;
     public static final int TEST_RUN = 2;
     public static final int DISPOSE_WINDOWS = 3;
@@ -127,6 +139,16 @@ public class ExecServer
     public static final int INSTANTIATE_CLASS_ARGS = 7; // use constructor
         // with specified parameter types and arguments
     public static final int LAUNCH_FX_APP = 8;
+    public static final int INVOKE_DIRECT = 9; // call a method or constructor
+        // with arguments given as values (see getArgumentValue) rather than
+        // as expressions in a shell class
+
+    // Kinds of argument value for INVOKE_DIRECT. Each argument string is one of
+    // these characters followed by the value:
+    public static final char ARG_NULL = 'n';       // null (no value follows)
+    public static final char ARG_STRING = 's';     // a string
+    public static final char ARG_OBJECT = 'o';     // the name of an object in the scope
+    public static final char ARG_PRIMITIVE = 'p';  // a primitive value, as given by String.valueOf()
 
     // Parameter for worker thread actions
     public static int workerAction = EXIT_VM;
@@ -158,7 +180,7 @@ public class ExecServer
     public static final int LOAD_ALL      = 5; // load class and inner classes
 
     // the current class loader
-    private static ClassLoader currentLoader;
+    private static BJClassLoader currentLoader;
 
     // The loader that loads the greenfoot application classes. This is the
     // loader that gets used the first time anything is loaded in the debugvm.
@@ -373,7 +395,7 @@ public class ExecServer
             System.err.println("ExecServer.newLoader() Malformed URL=" + splits[index]);
         }
 
-        currentLoader = new URLClassLoader(urls);
+        currentLoader = new BJClassLoader(urls);
         
         synchronized (objectMaps) {
             objectMaps.clear();
@@ -760,6 +782,14 @@ public class ExecServer
                             executedClass = null;
                             
                             clearInputBuffer();
+                            if (shellClassNames != null) {
+                                for (int i = 0; i < shellClassNames.length; i++) {
+                                    byte [] classFile = shellClassFiles[i].getBytes(StandardCharsets.ISO_8859_1);
+                                    currentLoader.addClass(shellClassNames[i], classFile);
+                                }
+                                shellClassNames = null;
+                                shellClassFiles = null;
+                            }
                             Class<?> c = currentLoader.loadClass(classToRun);
                             executedClass = c;
                             // Class c = cloader.loadClass(classToRun);
@@ -819,6 +849,49 @@ public class ExecServer
                             });
                             break;
                         }
+                        case INVOKE_DIRECT:
+                        {
+                            // Call a method or constructor without a shell class. The
+                            // arguments are simple values or objects from the scope.
+                            clearInputBuffer();
+                            Class<?> c = currentLoader.loadClass(classToRun);
+                            BJMap<String,Object> scope = getScope(invokeScopeId);
+                            Class<?> [] paramClasses = new Class<?>[parameterTypes.length];
+                            Object [] args = new Object[parameterTypes.length];
+                            for (int i = 0; i < parameterTypes.length; i++) {
+                                paramClasses[i] = getParameterClass(parameterTypes[i]);
+                                args[i] = getArgumentValue(paramClasses[i], invokeArguments[i], scope);
+                            }
+                            
+                            if (methodToRun == null) {
+                                Constructor<?> cons = c.getDeclaredConstructor(paramClasses);
+                                cons.setAccessible(true);
+                                runOnTargetThread(() -> {
+                                    try {
+                                        methodReturn = cons.newInstance(args);
+                                    }
+                                    catch (InvocationTargetException ite) {
+                                        throw removeInvocationFrames(ite.getCause());
+                                    }
+                                });
+                            }
+                            else {
+                                Method m = c.getDeclaredMethod(methodToRun, paramClasses);
+                                m.setAccessible(true);
+                                Object target = invokeTarget == null ? null : getScopeObject(scope, invokeTarget);
+                                runOnTargetThread(() -> {
+                                    Object result;
+                                    try {
+                                        result = m.invoke(target, args);
+                                    }
+                                    catch (InvocationTargetException ite) {
+                                        throw removeInvocationFrames(ite.getCause());
+                                    }
+                                    methodReturn = wrapResult(m.getReturnType(), result);
+                                });
+                            }
+                            break;
+                        }
                         case LAUNCH_FX_APP:
                             // The preloader will tell us the Application reference:
                             CompletableFuture<Application> theApp = new CompletableFuture<>();
@@ -915,6 +988,147 @@ public class ExecServer
         }
     }
 
+    /**
+     * Get the class for a parameter type name, as given by Class.getName().
+     */
+    private static Class<?> getParameterClass(String typeName) throws ClassNotFoundException
+    {
+        switch (typeName) {
+            case "boolean": return boolean.class;
+            case "byte": return byte.class;
+            case "char": return char.class;
+            case "short": return short.class;
+            case "int": return int.class;
+            case "long": return long.class;
+            case "float": return float.class;
+            case "double": return double.class;
+            default: return Class.forName(typeName, false, currentLoader);
+        }
+    }
+
+    /**
+     * Get the value of an argument for INVOKE_DIRECT.
+     * 
+     * @param type   the parameter type
+     * @param arg    the argument: one of the ARG_ kinds, followed by the value
+     * @param scope  the scope in which to find objects named by ARG_OBJECT arguments
+     */
+    private static Object getArgumentValue(Class<?> type, String arg, BJMap<String,Object> scope)
+    {
+        String value = arg.substring(1);
+        switch (arg.charAt(0)) {
+            case ARG_STRING:
+                return value;
+            case ARG_OBJECT:
+                return getScopeObject(scope, value);
+            case ARG_PRIMITIVE:
+                if (type == boolean.class) {
+                    return Boolean.valueOf(value);
+                }
+                else if (type == char.class) {
+                    return Character.valueOf(value.charAt(0));
+                }
+                else if (type == byte.class) {
+                    return Byte.valueOf(value);
+                }
+                else if (type == short.class) {
+                    return Short.valueOf(value);
+                }
+                else if (type == int.class) {
+                    return Integer.valueOf(value);
+                }
+                else if (type == long.class) {
+                    return Long.valueOf(value);
+                }
+                else if (type == float.class) {
+                    return Float.valueOf(value);
+                }
+                else if (type == double.class) {
+                    return Double.valueOf(value);
+                }
+                throw new IllegalArgumentException("not a primitive type: " + type);
+            default:
+                return null;
+        }
+    }
+
+    private static Object getScopeObject(BJMap<String,Object> scope, String name)
+    {
+        synchronized (scope) {
+            return scope.get(name);
+        }
+    }
+
+    /**
+     * Wrap the result of a directly invoked method in the same way as the result
+     * of a shell class, so that the result type is available to the debugger. Returns
+     * null for a void method.
+     */
+    private static Object wrapResult(Class<?> returnType, Object result)
+    {
+        if (returnType == void.class) {
+            return null;
+        }
+        else if (returnType == boolean.class) {
+            return Shell.makeObj(((Boolean) result).booleanValue());
+        }
+        else if (returnType == byte.class) {
+            return Shell.makeObj(((Byte) result).byteValue());
+        }
+        else if (returnType == char.class) {
+            return Shell.makeObj(((Character) result).charValue());
+        }
+        else if (returnType == short.class) {
+            return Shell.makeObj(((Short) result).shortValue());
+        }
+        else if (returnType == int.class) {
+            return Shell.makeObj(((Integer) result).intValue());
+        }
+        else if (returnType == long.class) {
+            return Shell.makeObj(((Long) result).longValue());
+        }
+        else if (returnType == float.class) {
+            return Shell.makeObj(((Float) result).floatValue());
+        }
+        else if (returnType == double.class) {
+            return Shell.makeObj(((Double) result).doubleValue());
+        }
+        else if (returnType == String.class) {
+            return Shell.makeObj((String) result);
+        }
+        return Shell.makeObj(result);
+    }
+
+    /**
+     * Remove the reflection frames (and everything below them) from the stack trace
+     * of an exception thrown by a directly invoked method or constructor, so that the
+     * trace ends with the user's code, as it does for a shell class.
+     */
+    private static Throwable removeInvocationFrames(Throwable t)
+    {
+        StackTraceElement [] stackTrace = t.getStackTrace();
+        int i;
+        for (i = stackTrace.length - 1; i >= 0; i--) {
+            String stClassName = stackTrace[i].getClassName();
+            if (stClassName.equals("java.lang.reflect.Method")
+                    || stClassName.equals("java.lang.reflect.Constructor")) {
+                break;
+            }
+        }
+        if (i < 0) {
+            return t;
+        }
+        
+        while (i > 0 && (stackTrace[i - 1].getClassName().startsWith("sun.reflect.")
+                || stackTrace[i - 1].getClassName().startsWith("jdk.internal.reflect."))) {
+            i--;
+        }
+        StackTraceElement [] newStackTrace = new StackTraceElement[i];
+        System.arraycopy(stackTrace, 0, newStackTrace, 0, i);
+        t.setStackTrace(newStackTrace);
+        return t;
+    }
+
     /**
      * Record that an exception occurred, as well as printing a filtered stack trace.
      * @param t  the exception which was caught
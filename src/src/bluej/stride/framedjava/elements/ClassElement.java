@@ -117,17 +117,22 @@ public class ClassElement extends DocumentContainerCodeElement implements TopLev
     // as this affects the content of the document, and we may have to regenerate.
     private ExpressionSlot<?> sourceDocumentCompleting;
     /**
-     * A map of documents for given contents.  This guards against race hazards, so
-     * that we use the correct document for the given content, even when we are hopping
-     * across threads and potentially generating several documents in a short space
-     * of time, concurrent with looking up information in them.
+     * Map from generated source to the positions of the fragments within it.  This guards
+     * against race hazards, so that we use the correct positions for the given content, even
+     * when we are hopping across threads and potentially generating several documents in a
+     * short space of time, concurrent with looking up information in them.
      *
      * This cache does not have a size limit, but that shouldn't matter as it is per-instance
      * so the only potential differences in source code are down to which slot is being completed,
-     * giving a limit on the number of documents we could generate for a given source version
-     * (each ClassElement is immutable).
+     * giving a limit on the number of versions we could generate for a given source version
+     * (each ClassElement is immutable).  The parsed documents themselves are held in documentCache.
      */
-    private final HashMap<String, DocAndPositions> documentCache = new HashMap<>();
+    private final HashMap<String, DocAndPositions> positionCache = new HashMap<>();
+    /**
+     * The parsed documents for the generated source.  Shared with other elements generated
+     * from the same frame, so that documents can be reused across code regeneration.
+     */
+    private final GeneratedDocumentCache documentCache;
 
     /**
      * Creates a class element from the given frame (when generating code elements for
@@ -139,6 +144,7 @@ public class ClassElement extends DocumentContainerCodeElement implements TopLev
                         String packageName, List<ImportElement> imports, boolean enabled)
     {
         this.frame = frame;
+        this.documentCache = (frame != null) ? frame.getDocumentCache() : new GeneratedDocumentCache();
         this.openingCurly = new FrameFragment(this.frame, this, "{");
         this.closingCurly = new FrameFragment(this.frame, this, "}");
         this.abstractModifier = abstractModifier;
@@ -197,6 +203,7 @@ public class ClassElement extends DocumentContainerCodeElement implements TopLev
        
         enable = new Boolean(el.getAttributeValue("enable"));
         this.projectResolver = projectResolver;
+        this.documentCache = new GeneratedDocumentCache();
         this.openingCurly = new FrameFragment(null, this, "{");
         this.closingCurly = new FrameFragment(null, this, "}");
     }
@@ -403,7 +410,7 @@ public class ClassElement extends DocumentContainerCodeElement implements TopLev
     @OnThread(Tag.FXPlatform)
     private Optional<Integer> resolvePos(MoeSyntaxDocument doc, PosInSourceDoc pos)
     {
-        DocAndPositions docAndPositions = documentCache.get(doc.getText(0, doc.getLength()));
+        DocAndPositions docAndPositions = positionCache.get(doc.getText(0, doc.getLength()));
         Optional<Integer> resolvedPos = Optional.ofNullable(docAndPositions.fragmentPositions.get(pos.getFragment()));
         return resolvedPos.map(p -> p + pos.offset);
     }
@@ -436,7 +443,7 @@ public class ClassElement extends DocumentContainerCodeElement implements TopLev
     @OnThread(Tag.FXPlatform)
     private MoeSyntaxDocument getSourceDocument(ExpressionSlot completing)
     {
-        return getDAP(completing).getDocument(projectResolver);
+        return getDAP(completing).getDocument(documentCache, projectResolver);
     }
     
     @OnThread(Tag.FXPlatform)
@@ -448,17 +455,17 @@ public class ClassElement extends DocumentContainerCodeElement implements TopLev
             sourceDocumentCompleting = completing;
             JavaSource java = generateJavaSource();
             String src = java.toMemoryJavaCodeString(positions, completing);
-            if (documentCache.containsKey(src))
+            if (positionCache.containsKey(src))
             {
                 // No need to generate and parse it again, just use existing one, but
                 // add in our positions in case they used different fragments:
-                sourceDocument = documentCache.get(src);
+                sourceDocument = positionCache.get(src);
                 sourceDocument.fragmentPositions.putAll(positions);
             }
             else
             {
                 sourceDocument = new DocAndPositions(src, java, positions);
-                documentCache.put(src, sourceDocument);
+                positionCache.put(src, sourceDocument);
             }
         }
         return sourceDocument;
@@ -618,8 +625,7 @@ public class ClassElement extends DocumentContainerCodeElement implements TopLev
     {
         public final JavaSource java;
         public final IdentityHashMap<JavaFragment, Integer> fragmentPositions;
-        private String src;
-        private MoeSyntaxDocument document;
+        private final String src;
 
         public DocAndPositions(String src, JavaSource java, IdentityHashMap<JavaFragment, Integer> fragmentPositions)
         {
@@ -629,15 +635,9 @@ public class ClassElement extends DocumentContainerCodeElement implements TopLev
         }
         
         @OnThread(Tag.FXPlatform)
-        public MoeSyntaxDocument getDocument(EntityResolver projectResolver)
+        public MoeSyntaxDocument getDocument(GeneratedDocumentCache documentCache, EntityResolver projectResolver)
         {
-            if (document == null)
-            {
-                document = new MoeSyntaxDocument(projectResolver);
-                document.insertString(0, src);
-                document.enableParser(true);
-            }
-            return document;
+            return documentCache.getDocument(src, projectResolver);
         }
     }
 
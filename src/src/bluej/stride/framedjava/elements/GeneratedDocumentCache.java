@@ -0,0 +1,94 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2016 Michael Kölling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.stride.framedjava.elements;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import bluej.editor.moe.MoeSyntaxDocument;
+import bluej.parser.entity.EntityResolver;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A cache of parsed documents for the Java source generated from a top-level
+ * Stride frame, used for code completion and type lookups.
+ *
+ * <p>One cache is shared by all the (immutable) code elements generated for the same
+ * frame, so documents survive code regeneration and are reused whenever the same
+ * source is generated again.  The cache holds at most {@link #MAX_DOCUMENTS} documents;
+ * beyond that, the least recently used document is discarded.  A document is never
+ * modified once it has been handed out, since nodes and resolvers obtained from it
+ * may still be in use.
+ */
+public class GeneratedDocumentCache
+{
+    /** The number of documents to keep */
+    private static final int MAX_DOCUMENTS = 4;
+
+    // Keyed by hash code of the source; the source is compared on lookup to rule out collisions.
+    // In access order, so the first entry is the least recently used:
+    private final LinkedHashMap<Integer, Entry> documents = new LinkedHashMap<>(8, 0.75f, true);
+
+    private static class Entry
+    {
+        private final String src;
+        private final EntityResolver resolver;
+        private final MoeSyntaxDocument document;
+
+        private Entry(String src, EntityResolver resolver, MoeSyntaxDocument document)
+        {
+            this.src = src;
+            this.resolver = resolver;
+            this.document = document;
+        }
+    }
+
+    /**
+     * Get a parsed document with the given content.  The document must not be modified
+     * by the caller.
+     */
+    @OnThread(Tag.FXPlatform)
+    public synchronized MoeSyntaxDocument getDocument(String src, EntityResolver resolver)
+    {
+        Entry entry = documents.get(src.hashCode());
+        if (entry != null && entry.src.equals(src) && entry.resolver == resolver)
+        {
+            return entry.document;
+        }
+
+        // A hash collision, or a different resolver, replaces the old entry.  Otherwise,
+        // make room by discarding the least recently used document:
+        if (entry == null && documents.size() >= MAX_DOCUMENTS)
+        {
+            Iterator<Integer> it = documents.keySet().iterator();
+            it.next();
+            it.remove();
+        }
+
+        MoeSyntaxDocument document = new MoeSyntaxDocument(resolver);
+        document.insertString(0, src);
+        document.enableParser(true);
+        documents.put(src.hashCode(), new Entry(src, resolver, document));
+        return document;
+    }
+}
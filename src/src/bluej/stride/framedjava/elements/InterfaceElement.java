@@ -86,22 +86,28 @@ public class InterfaceElement extends DocumentContainerCodeElement implements To
     // as if affects results:
     private ExpressionSlot<?> sourceDocumentCompleting;
     /**
-     * A map of documents for given contents.  This guards against race hazards, so
-     * that we use the correct document for the given content, even when we are hopping
-     * across threads and potentially generating several documents in a short space
-     * of time, concurrent with looking up information in them.
+     * Map from generated source to the positions of the fragments within it.  This guards
+     * against race hazards, so that we use the correct positions for the given content, even
+     * when we are hopping across threads and potentially generating several documents in a
+     * short space of time, concurrent with looking up information in them.
      *
      * This cache does not have a size limit, but that shouldn't matter as it is per-instance
      * so the only potential differences in source code are down to which slot is being completed,
-     * giving a limit on the number of documents we could generate for a given source version
-     * (each InterfaceElement is immutable).
+     * giving a limit on the number of versions we could generate for a given source version
+     * (each InterfaceElement is immutable).  The parsed documents themselves are held in documentCache.
      */
-    private final HashMap<String, DocAndPositions> documentCache = new HashMap<>();
+    private final HashMap<String, DocAndPositions> positionCache = new HashMap<>();
+    /**
+     * The parsed documents for the generated source.  Shared with other elements generated
+     * from the same frame, so that documents can be reused across code regeneration.
+     */
+    private final GeneratedDocumentCache documentCache;
     public InterfaceElement(InterfaceFrame frame, EntityResolver projectResolver, NameDefSlotFragment interfaceName,
                 List<TypeSlotFragment> extendsTypes, List<CodeElement> fields, List<CodeElement> methods,
                 JavadocUnit documentation, String packageName, List<ImportElement> imports, boolean enabled)
     {
         this.frame = frame;
+        this.documentCache = (frame != null) ? frame.getDocumentCache() : new GeneratedDocumentCache();
         this.interfaceName = interfaceName;
         //TODO
         this.extendsTypes = extendsTypes == null ? new ArrayList<>() : new ArrayList<>(extendsTypes);
@@ -124,6 +130,7 @@ public class InterfaceElement extends DocumentContainerCodeElement implements To
     public InterfaceElement(Element el, EntityResolver projectResolver)
     {
         this.projectResolver = projectResolver;
+        this.documentCache = new GeneratedDocumentCache();
         interfaceName = new NameDefSlotFragment(el.getAttributeValue("name"));
         Element javadocEL = el.getFirstChildElement("javadoc");
         if (javadocEL != null) {
@@ -320,7 +327,7 @@ public class InterfaceElement extends DocumentContainerCodeElement implements To
     @OnThread(Tag.FXPlatform)
     private MoeSyntaxDocument getSourceDocument(ExpressionSlot completing)
     {
-        return getDAP(completing).getDocument(projectResolver);
+        return getDAP(completing).getDocument(documentCache, projectResolver);
     }
 
     @OnThread(Tag.FXPlatform)
@@ -332,17 +339,17 @@ public class InterfaceElement extends DocumentContainerCodeElement implements To
             sourceDocumentCompleting = completing;
             JavaSource java = generateJavaSource();
             String src = java.toMemoryJavaCodeString(positions, completing);
-            if (documentCache.containsKey(src))
+            if (positionCache.containsKey(src))
             {
                 // No need to generate and parse it again, just use existing one, but
                 // add in our positions in case they used different fragments:
-                sourceDocument = documentCache.get(src);
+                sourceDocument = positionCache.get(src);
                 sourceDocument.fragmentPositions.putAll(positions);
             }
             else
             {
                 sourceDocument = new DocAndPositions(src, java, positions);
-                documentCache.put(src, sourceDocument);
+                positionCache.put(src, sourceDocument);
             }
         }
         return sourceDocument;
@@ -385,8 +392,7 @@ public class InterfaceElement extends DocumentContainerCodeElement implements To
     {
         public final JavaSource java;
         public final IdentityHashMap<JavaFragment, Integer> fragmentPositions;
-        private String src;
-        private MoeSyntaxDocument document;
+        private final String src;
 
         public DocAndPositions(String src, JavaSource java, IdentityHashMap<JavaFragment, Integer> fragmentPositions)
         {
@@ -396,15 +402,9 @@ public class InterfaceElement extends DocumentContainerCodeElement implements To
         }
 
         @OnThread(Tag.FXPlatform)
-        public MoeSyntaxDocument getDocument(EntityResolver projectResolver)
+        public MoeSyntaxDocument getDocument(GeneratedDocumentCache documentCache, EntityResolver projectResolver)
         {
-            if (document == null)
-            {
-                document = new MoeSyntaxDocument(projectResolver);
-                document.insertString(0, src);
-                document.enableParser(true);
-            }
-            return document;
+            return documentCache.getDocument(src, projectResolver);
         }
     }
 
@@ -26,6 +26,7 @@ import bluej.parser.entity.EntityResolver;
 import bluej.stride.framedjava.ast.JavadocUnit;
 import bluej.stride.framedjava.ast.NameDefSlotFragment;
 import bluej.stride.framedjava.elements.CodeElement;
+import bluej.stride.framedjava.elements.GeneratedDocumentCache;
 import bluej.stride.framedjava.elements.ImportElement;
 import bluej.stride.framedjava.elements.TopLevelCodeElement;
 import bluej.stride.framedjava.errors.CodeError;
@@ -76,6 +77,8 @@ public abstract class TopLevelDocumentMultiCanvasFrame<ELEMENT extends CodeEleme
     protected final InteractionManager editor;
     protected final EntityResolver projectResolver;
     private final String stylePrefix;
+    /** Parsed documents for the Java generated from this frame, shared by successive code elements */
+    private final GeneratedDocumentCache documentCache = new GeneratedDocumentCache();
 
     @OnThread(value = Tag.Any,requireSynchronized = true)
     protected ELEMENT element;
@@ -365,6 +368,15 @@ public abstract class TopLevelDocumentMultiCanvasFrame<ELEMENT extends CodeEleme
         return importCanvas;
     }
 
+    /**
+     * Get the cache of parsed documents for the Java generated from this frame.
+     */
+    @OnThread(Tag.Any)
+    public GeneratedDocumentCache getDocumentCache()
+    {
+        return documentCache;
+    }
+
     public ObservableList<String> getImports()
     {
         return boundImports;
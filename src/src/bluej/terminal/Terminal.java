@@ -83,10 +83,6 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -103,6 +99,10 @@ public final class Terminal
     implements BlueJEventListener, DebuggerTerminal
 {
     private static final int MAX_BUFFER_LINES = 200;
+    // With unlimited buffering, the number of lines kept in the text area before
+    // older lines are moved to the scrollback, and the number moved at a time:
+    private static final int MAX_DISPLAY_LINES = 5000;
+    private static final int SCROLLBACK_BLOCK_LINES = 1000;
     private VirtualizedScrollPane<?> errorScrollPane;
 
     private static interface TextAreaStyle
@@ -178,6 +178,7 @@ public final class Terminal
     private static final String RECORDMETHODCALLSPROPNAME = "bluej.terminal.recordcalls";
     private static final String CLEARONMETHODCALLSPROPNAME = "bluej.terminal.clearscreen";
     private static final String UNLIMITEDBUFFERINGCALLPROPNAME = "bluej.terminal.buffering";
+    private static final String OUTPUTBUFFERPROPNAME = "bluej.terminal.outputbuffer";
 
     private final String title;
 
@@ -196,11 +197,20 @@ public final class Terminal
             Config.getPropBooleanProperty(CLEARONMETHODCALLSPROPNAME);
     private static BooleanProperty unlimitedBufferingCall =
             Config.getPropBooleanProperty(UNLIMITEDBUFFERINGCALLPROPNAME);
+    private final TerminalScrollback scrollback = new TerminalScrollback();
     private boolean newMethodCall = true;
     private boolean errorShown = false;
     private final InputBuffer buffer;
     private final BooleanProperty showingProperty = new SimpleBooleanProperty(false);
 
+    // Output written to the terminal which has not yet been displayed, and whether
+    // a task to display it has been scheduled on the FX thread. Guarded by pendingLock.
+    @OnThread(Tag.Any) private final Object pendingLock = new Object();
+    @OnThread(Tag.Any) private final StringBuilder pendingOutput = new StringBuilder();
+    @OnThread(Tag.Any) private final StringBuilder pendingErrorOutput = new StringBuilder();
+    @OnThread(Tag.Any) private boolean displayScheduled = false;
+    @OnThread(Tag.Any) private final int maxPendingOutput = Math.max(Config.getPropInteger(OUTPUTBUFFERPROPNAME, 256 * 1024), 1024);
+
     @OnThread(Tag.Any) private final Reader in = new TerminalReader();
     @OnThread(Tag.Any) private final Writer out = new TerminalWriter(false);
     @OnThread(Tag.Any) private final Writer err = new TerminalWriter(true);
@@ -219,12 +229,19 @@ public final class Terminal
         text = new StyledTextArea<Void, StdoutStyle>(null, (t, v) -> {}, StdoutStyle.OUTPUT, this::applyStyle);
 
         VirtualizedScrollPane<?> scrollPane = new VirtualizedScrollPane<>(text);
+        // When the user scrolls to the top, bring back older output from the scrollback:
+        scrollPane.estimatedScrollYProperty().addListener((obs, oldY, newY) -> {
+            if (newY <= 0 && oldY > 0)
+                restoreFromScrollback();
+        });
         text.setEditable(false);
         text.getStyleClass().add("terminal");
         text.styleProperty().bind(PrefMgr.getEditorFontCSS(true));
         unlimitedBufferingCall.addListener(c -> {
             // Toggle unlimited buffering; need to chop if necessary
-            trimToMaxBufferLines(text);
+            if (!unlimitedBufferingCall.get())
+                scrollback.clear();
+            trimToMaxBufferLines();
         });
 
         input = new TextField();
@@ -371,6 +388,7 @@ public final class Terminal
     public void clear()
     {
         text.replaceText("");
+        scrollback.clear();
         if(errorText!=null) {
             errorText.replaceText("");
         }
@@ -394,6 +412,7 @@ public final class Terminal
             try
             {
                 FileWriter writer = new FileWriter(fileName);
+                scrollback.writeTo(writer);
                 writer.write(text.getText());
                 writer.close();
             }
@@ -450,6 +469,32 @@ public final class Terminal
         }
     }
 
+    /**
+     * Display the output which has been written to the terminal since this was last
+     * called. All the output of each stream is appended in one go.
+     */
+    private void displayPendingOutput()
+    {
+        String output;
+        String errorOutput;
+        synchronized (pendingLock) {
+            output = pendingOutput.toString();
+            errorOutput = pendingErrorOutput.toString();
+            pendingOutput.setLength(0);
+            pendingErrorOutput.setLength(0);
+            displayScheduled = false;
+            pendingLock.notifyAll();
+        }
+        
+        if (! output.isEmpty()) {
+            writeToPane(text, output, StdoutStyle.OUTPUT);
+        }
+        if (! errorOutput.isEmpty()) {
+            showErrorPane();
+            writeToPane(errorText, errorOutput, StderrStyle.NORMAL);
+        }
+    }
+
     /**
      * Write some text to the terminal.
      */
@@ -468,24 +513,57 @@ public final class Terminal
 
         pane.append(styled(s, style));
 
-        if (pane != errorText)
+        if (pane == text)
         {
-            trimToMaxBufferLines(pane);
+            trimToMaxBufferLines();
         }
 
         pane.end(SelectionPolicy.CLEAR);
         pane.requestFollowCaret();
     }
 
-    private <S extends TextAreaStyle> void trimToMaxBufferLines(StyledTextArea<Void, S> pane)
+    /**
+     * Remove old lines from the start of the output pane. Without unlimited buffering
+     * they are discarded; with unlimited buffering they are moved to the scrollback
+     * (in blocks of at least SCROLLBACK_BLOCK_LINES), from where they are brought
+     * back if the user scrolls up to them.
+     */
+    private void trimToMaxBufferLines()
     {
-        if (!unlimitedBufferingCall.get() && pane.getParagraphs().size() >= MAX_BUFFER_LINES)
+        boolean unlimited = unlimitedBufferingCall.get();
+        int paragraphs = text.getParagraphs().size();
+        if (unlimited && paragraphs > MAX_DISPLAY_LINES + SCROLLBACK_BLOCK_LINES)
+        {
+            int newStart = text.position(paragraphs - MAX_DISPLAY_LINES, 0).toOffset();
+            scrollback.append(text.getText(0, newStart));
+            text.replaceText(0, newStart, "");
+        }
+        else if (!unlimited && paragraphs >= MAX_BUFFER_LINES)
         {
-            int newStart = pane.position(pane.getParagraphs().size() - MAX_BUFFER_LINES, 0).toOffset();
-            pane.replaceText(0, newStart, "");
+            int newStart = text.position(paragraphs - MAX_BUFFER_LINES, 0).toOffset();
+            text.replaceText(0, newStart, "");
         }
     }
 
+    /**
+     * Move the most recent block of lines from the scrollback back to the start of
+     * the output pane, keeping the view on the line which was at the top.  (The lines
+     * are moved out again when more output arrives.)
+     */
+    private void restoreFromScrollback()
+    {
+        if (!unlimitedBufferingCall.get() || scrollback.isEmpty())
+            return;
+
+        String restored = scrollback.takeLast();
+        if (restored == null)
+            return;
+        // Each block ends with a line break, so this is the number of lines added:
+        int lines = (int) restored.chars().filter(c -> c == '\n').count();
+        text.replaceText(0, 0, restored);
+        text.showParagraphAtTop(lines);
+    }
+
     /**
      * Prepare the terminal for I/O.
      */
@@ -832,6 +910,7 @@ public final class Terminal
     public void cleanup()
     {
         BlueJEvent.removeListener(this);
+        scrollback.close();
     }
 
     /**
@@ -880,35 +959,34 @@ public final class Terminal
 
         public void write(final char[] cbuf, final int off, final int len)
         {
-            try {
-                // We use a wait so that terminal output is limited to
+            synchronized (pendingLock) {
+                // The output is displayed by a single task on the FX thread, which
+                // picks up everything written before it runs. If that is falling a
+                // long way behind, we wait, so that terminal output is limited to
                 // the processing speed of the event queue. This means the UI
                 // will still respond to user input even if the output is really
                 // gushing.
-                CompletableFuture<Boolean> written = new CompletableFuture<>();
-                Platform.runLater(() -> {
-                    try
-                    {
-                        String s = new String(cbuf, off, len);
-                        if (isErrorOut)
-                        {
-                            showErrorPane();
-                            writeToPane(errorText, s, StderrStyle.NORMAL);
-                        }
-                        else
-                            writeToPane(text, s, StdoutStyle.OUTPUT);
+                long waitUntil = System.currentTimeMillis() + 2000;
+                while (pendingOutput.length() + pendingErrorOutput.length() >= maxPendingOutput) {
+                    // Timeout in case something goes wrong with the printing:
+                    long waitTime = waitUntil - System.currentTimeMillis();
+                    if (waitTime <= 0) {
+                        break;
                     }
-                    finally
-                    {
-                        written.complete(true);
+                    try {
+                        pendingLock.wait(waitTime);
                     }
-                });
-                // Timeout in case something goes wrong with the printing:
-                written.get(2000, TimeUnit.MILLISECONDS);
-            }
-            catch (InterruptedException | ExecutionException | TimeoutException ie)
-            {
-                Debug.reportError(ie);
+                    catch (InterruptedException ie) {
+                        Debug.reportError(ie);
+                        break;
+                    }
+                }
+                
+                (isErrorOut ? pendingErrorOutput : pendingOutput).append(cbuf, off, len);
+                if (! displayScheduled) {
+                    displayScheduled = true;
+                    Platform.runLater(Terminal.this::displayPendingOutput);
+                }
             }
         }
 
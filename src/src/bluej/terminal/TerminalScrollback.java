@@ -0,0 +1,165 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2017  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.terminal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import bluej.utility.Debug;
+
+/**
+ * The part of the terminal output which has scrolled out of the terminal window
+ * when unlimited buffering is turned on.
+ *
+ * <p>Only the most recent lines are kept in the terminal's text area; older lines
+ * are appended to a temporary file, so that memory use stays the same however much
+ * output a program produces. The text is kept in the blocks in which it was added,
+ * so that when the user scrolls back to the top of the text area, the most recent
+ * block can be taken back out again. The whole output is still available for saving.
+ */
+class TerminalScrollback
+{
+    /** The file holding the text, or null if not yet created */
+    private RandomAccessFile file;
+    private File path;
+    /** The offset in the file at which each block starts, in the order they were added */
+    private final List<Long> blockStarts = new ArrayList<>();
+
+    /**
+     * Add some text (which has been removed from the start of the terminal
+     * text area) to the end of the scrollback, as a single block.
+     */
+    public void append(String text)
+    {
+        if (text.isEmpty()) {
+            return;
+        }
+
+        try {
+            if (file == null) {
+                path = File.createTempFile("bluej-terminal", ".txt");
+                path.deleteOnExit();
+                file = new RandomAccessFile(path, "rw");
+            }
+            long start = file.length();
+            file.seek(start);
+            file.write(text.getBytes(StandardCharsets.UTF_8));
+            blockStarts.add(start);
+        }
+        catch (IOException ioe) {
+            // The text is lost, as it would be without unlimited buffering:
+            Debug.reportError("Error writing terminal scrollback", ioe);
+        }
+    }
+
+    /**
+     * Check whether there is any text in the scrollback.
+     */
+    public boolean isEmpty()
+    {
+        return blockStarts.isEmpty();
+    }
+
+    /**
+     * Remove the most recently added block from the scrollback, and return its text.
+     * Returns null if the scrollback is empty or can't be read.
+     */
+    public String takeLast()
+    {
+        if (blockStarts.isEmpty()) {
+            return null;
+        }
+
+        try {
+            long start = blockStarts.get(blockStarts.size() - 1);
+            byte[] bytes = new byte[(int) (file.length() - start)];
+            file.seek(start);
+            file.readFully(bytes);
+            file.setLength(start);
+            blockStarts.remove(blockStarts.size() - 1);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+        catch (IOException ioe) {
+            Debug.reportError("Error reading terminal scrollback", ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Write the entire contents of the scrollback to the given writer.
+     */
+    public void writeTo(Writer out) throws IOException
+    {
+        if (file == null) {
+            return;
+        }
+
+        // A block at a time, so that we don't hold the whole scrollback in memory:
+        long length = file.length();
+        for (int i = 0; i < blockStarts.size(); i++) {
+            long start = blockStarts.get(i);
+            long end = (i + 1 < blockStarts.size()) ? blockStarts.get(i + 1) : length;
+            byte[] bytes = new byte[(int) (end - start)];
+            file.seek(start);
+            file.readFully(bytes);
+            out.write(new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Discard the contents of the scrollback. The file is kept for re-use.
+     */
+    public void clear()
+    {
+        blockStarts.clear();
+        if (file != null) {
+            try {
+                file.setLength(0);
+            }
+            catch (IOException ioe) {
+                Debug.reportError("Error clearing terminal scrollback", ioe);
+            }
+        }
+    }
+
+    /**
+     * Discard the contents of the scrollback, and delete its file.
+     */
+    public void close()
+    {
+        blockStarts.clear();
+        if (file != null) {
+            try {
+                file.close();
+            }
+            catch (IOException ioe) {}
+            path.delete();
+            file = null;
+            path = null;
+        }
+    }
+}
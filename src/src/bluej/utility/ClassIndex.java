@@ -0,0 +1,304 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2017  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.utility;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+import bluej.Config;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * An index of the names of the classes in each jar file, kept on disk between sessions.
+ * 
+ * <p>Each jar is identified by its path, size and modification time.  A jar is only
+ * read if it isn't in the index or has changed since it was indexed, so after the
+ * first run, finding all the classes on a classpath mostly needs no jar to be opened.
+ * The names for each jar are only decoded from the index file when that jar is asked for.
+ * 
+ * <p>Directories are always scanned, as there is no cheap way to tell if their
+ * contents have changed.
+ * 
+ * <p>There is a single instance, shared by all projects.
+ */
+@OnThread(Tag.Any)
+class ClassIndex
+{
+    private static final int MAGIC = 0x424A4349; // "BJCI"
+    private static final int FORMAT_VERSION = 1;
+
+    private static ClassIndex instance;
+
+    /** The index file */
+    private final File indexFile;
+    /** Entries for each jar, keyed by absolute path */
+    private final Map<String, JarEntry> entries = new HashMap<>();
+    /** Whether entries has changed since the index was loaded or last saved */
+    private boolean modified;
+
+    /**
+     * The class names from a single jar file.
+     */
+    private static class JarEntry
+    {
+        private final long size;
+        private final long lastModified;
+        /** The class names, or null if not yet decoded */
+        private List<String> classNames;
+        /** The encoded class names, as stored in the index file, or null if not yet encoded */
+        private byte[] encoded;
+
+        private JarEntry(long size, long lastModified)
+        {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        private boolean matches(File jar)
+        {
+            return jar.length() == size && jar.lastModified() == lastModified;
+        }
+
+        private List<String> getClassNames() throws IOException
+        {
+            if (classNames == null) {
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded));
+                int count = in.readInt();
+                classNames = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    classNames.add(in.readUTF());
+                }
+            }
+            return classNames;
+        }
+
+        private byte[] getEncoded() throws IOException
+        {
+            if (encoded == null) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                DataOutputStream out = new DataOutputStream(bytes);
+                out.writeInt(classNames.size());
+                for (String name : classNames) {
+                    out.writeUTF(name);
+                }
+                out.flush();
+                encoded = bytes.toByteArray();
+            }
+            return encoded;
+        }
+    }
+
+    private ClassIndex(File indexFile)
+    {
+        this.indexFile = indexFile;
+        load();
+    }
+
+    /**
+     * Get the index, loading it from disk if this is the first use.
+     */
+    public static synchronized ClassIndex getInstance()
+    {
+        if (instance == null) {
+            instance = new ClassIndex(new File(Config.getUserConfigDir(), "class-index.bin"));
+        }
+        return instance;
+    }
+
+    /**
+     * Read the index file.  The class names for each jar are kept encoded until needed.
+     */
+    private void load()
+    {
+        if (!indexFile.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(indexFile.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                JarEntry entry = new JarEntry(in.readLong(), in.readLong());
+                entry.encoded = new byte[in.readInt()];
+                in.readFully(entry.encoded);
+                entries.put(path, entry);
+            }
+        }
+        catch (IOException ioe) {
+            // A damaged index is simply rebuilt:
+            Debug.message("Could not read class index: " + ioe.getMessage());
+            entries.clear();
+        }
+    }
+
+    /**
+     * Write the index file, if anything has changed.
+     */
+    public synchronized void save()
+    {
+        if (!modified) {
+            return;
+        }
+        File temp = new File(indexFile.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(temp))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(entries.size());
+                for (Map.Entry<String, JarEntry> e : entries.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeLong(e.getValue().size);
+                    out.writeLong(e.getValue().lastModified);
+                    byte[] encoded = e.getValue().getEncoded();
+                    out.writeInt(encoded.length);
+                    out.write(encoded);
+                }
+            }
+            Files.move(temp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            modified = false;
+        }
+        catch (IOException ioe) {
+            Debug.reportError("Could not save class index", ioe);
+            temp.delete();
+        }
+    }
+
+    /**
+     * Get the names of all the classes in the given jar or directory.  Names are fully
+     * qualified, using "$" to separate nested class names, e.g. "java.util.Map$Entry".
+     */
+    public List<String> getClassNames(File location)
+    {
+        if (location.isDirectory()) {
+            List<String> names = new ArrayList<>();
+            scanDirectory(location, "", names);
+            return names;
+        }
+        else if (location.isFile()) {
+            return getJarClassNames(location);
+        }
+        return new ArrayList<>();
+    }
+
+    private synchronized List<String> getJarClassNames(File jar)
+    {
+        String path = jar.getAbsolutePath();
+        JarEntry entry = entries.get(path);
+        if (entry != null && entry.matches(jar)) {
+            try {
+                return entry.getClassNames();
+            }
+            catch (IOException ioe) {
+                // Fall through and read the jar again
+            }
+        }
+
+        entry = new JarEntry(jar.length(), jar.lastModified());
+        entry.classNames = scanJar(jar);
+        entries.put(path, entry);
+        modified = true;
+        return entry.classNames;
+    }
+
+    /**
+     * Remove entries for jars which no longer exist.
+     */
+    public synchronized void removeMissing()
+    {
+        if (entries.keySet().removeIf(path -> !new File(path).isFile())) {
+            modified = true;
+        }
+    }
+
+    private static List<String> scanJar(File jar)
+    {
+        List<String> names = new ArrayList<>();
+        try (JarFile jarFile = new JarFile(jar)) {
+            Enumeration<? extends ZipEntry> jarEntries = jarFile.entries();
+            while (jarEntries.hasMoreElements()) {
+                String name = jarEntries.nextElement().getName();
+                if (name.endsWith(".class")) {
+                    String className = toClassName(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+                    if (className != null) {
+                        names.add(className);
+                    }
+                }
+            }
+        }
+        catch (IOException ioe) {
+            // Not a valid jar; it has no classes we can use:
+            Debug.message("Could not read classes from " + jar + ": " + ioe.getMessage());
+        }
+        return names;
+    }
+
+    private static void scanDirectory(File dir, String prefix, List<String> names)
+    {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File f : files) {
+            String name = f.getName();
+            if (f.isDirectory()) {
+                scanDirectory(f, prefix + name + ".", names);
+            }
+            else if (name.endsWith(".class")) {
+                String className = toClassName(prefix + name.substring(0, name.length() - ".class".length()));
+                if (className != null) {
+                    names.add(className);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check a class name found in a jar or directory, returning null if it is
+     * not a class which could be imported.
+     */
+    private static String toClassName(String name)
+    {
+        if (name.endsWith("module-info") || name.endsWith("package-info")) {
+            return null;
+        }
+        return name;
+    }
+}
@@ -21,30 +21,59 @@
  */
 package bluej.utility;
 
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
 
 /**
  * A general cache, which caches a fixed number of key/value combinations, and which
  * uses a recently-used strategy to determine which entries to keep.
  * 
+ * <p>Optionally, each value can be given a weight (for instance, its approximate size
+ * in memory), in which case the least recently used entries are also removed when the
+ * total weight of the cached values exceeds a limit. The most recently added entry is
+ * always kept, however heavy it is.
+ * 
+ * <p>The cache is safe for use from multiple threads. It counts hits, misses and
+ * evictions, which can be used to judge whether it is a suitable size.
+ * 
  * @author Davin McCall
  */
+@OnThread(Tag.Any)
 public class GeneralCache<K,V>
 {
-    private Map<K,V> cacheMap = new HashMap<K,V>();
-    private List<K> cachedKeys = new LinkedList<K>();
-    private int cacheSize;
+    // Iteration order is least recently accessed first:
+    private final LinkedHashMap<K,V> cacheMap = new LinkedHashMap<K,V>(16, 0.75f, true);
+    private final int cacheSize;
+    private final long maxWeight;
+    private final ToLongFunction<? super V> weigher;
+    private long totalWeight;
+    
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
     
     /**
      * Construct a cache to cache the given number of items.
      */
     public GeneralCache(int cacheSize)
+    {
+        this(cacheSize, Long.MAX_VALUE, v -> 0);
+    }
+    
+    /**
+     * Construct a cache to cache up to the given number of items, with a total
+     * weight (as determined by the given weigher) of up to maxWeight.
+     */
+    public GeneralCache(int cacheSize, long maxWeight, ToLongFunction<? super V> weigher)
     {
         this.cacheSize = cacheSize;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
     }
     
     /**
@@ -52,19 +81,15 @@ public class GeneralCache<K,V>
      * the return is null. To determine if a null return was due to a null value
      * or to the cache not containing a value, use containsKey().
      */
-    public V get(K key)
+    public synchronized V get(K key)
     {
+        // Also marks the retrieved key as recently used:
         V rval = cacheMap.get(key);
         if (rval != null) {
-            // Mark the retrieved key as recently used
-            for (Iterator<K> i = cachedKeys.iterator(); ; ) {
-                K k = i.next();
-                if (k.equals(key)) {
-                    i.remove();
-                    cachedKeys.add(key);
-                    break;
-                }
-            }
+            hitCount++;
+        }
+        else {
+            missCount++;
         }
         return rval;
     }
@@ -72,31 +97,83 @@ public class GeneralCache<K,V>
     /**
      * Check whether a value for the given key is currently cached.
      */
-    public boolean containsKey(K key)
+    public synchronized boolean containsKey(K key)
     {
         return cacheMap.containsKey(key);
     }
     
     /**
-     * Put an item in the cache. The given key must not already have a cached value.
+     * Put an item in the cache. If the key already has a cached value, it is replaced.
      */
-    public void put(K key, V value)
+    public synchronized void put(K key, V value)
     {
-        if (cachedKeys.size() >= cacheSize) {
-            K toRemove = cachedKeys.remove(0);
-            cacheMap.remove(toRemove);
+        V oldValue = cacheMap.put(key, value);
+        if (oldValue != null) {
+            totalWeight -= weigh(oldValue);
         }
+        totalWeight += weigh(value);
         
-        cacheMap.put(key, value);
-        cachedKeys.add(key);
+        // Remove least recently used entries, but never the one just added:
+        Iterator<Map.Entry<K,V>> i = cacheMap.entrySet().iterator();
+        while ((cacheMap.size() > cacheSize || totalWeight > maxWeight) && cacheMap.size() > 1) {
+            Map.Entry<K,V> eldest = i.next();
+            totalWeight -= weigh(eldest.getValue());
+            i.remove();
+            evictionCount++;
+        }
+    }
+    
+    private long weigh(V value)
+    {
+        return value == null ? 0 : weigher.applyAsLong(value);
     }
     
     /**
      * Remove all cache entries.
      */
-    public void clear()
+    public synchronized void clear()
     {
         cacheMap.clear();
-        cachedKeys.clear();
+        totalWeight = 0;
+    }
+    
+    /**
+     * Get the number of entries currently in the cache.
+     */
+    public synchronized int size()
+    {
+        return cacheMap.size();
+    }
+    
+    /**
+     * Get the total weight of the values currently in the cache.
+     */
+    public synchronized long getTotalWeight()
+    {
+        return totalWeight;
+    }
+    
+    /**
+     * Get the number of calls to get() which found a cached value.
+     */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+    
+    /**
+     * Get the number of calls to get() which did not find a cached value.
+     */
+    public synchronized long getMissCount()
+    {
+        return missCount;
+    }
+    
+    /**
+     * Get the number of entries which have been removed to make room for others.
+     */
+    public synchronized long getEvictionCount()
+    {
+        return evictionCount;
     }
 }
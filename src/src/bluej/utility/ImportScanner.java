@@ -39,6 +39,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import bluej.Config;
@@ -48,12 +49,7 @@ import nu.xom.Builder;
 import nu.xom.Document;
 import nu.xom.Element;
 import nu.xom.ParsingException;
-import org.reflections.Reflections;
-import org.reflections.ReflectionsException;
-import org.reflections.scanners.SubTypesScanner;
 import org.reflections.util.ClasspathHelper;
-import org.reflections.util.ConfigurationBuilder;
-import org.reflections.util.FilterBuilder;
 
 import bluej.Boot;
 import bluej.parser.ImportedTypeCompletion;
@@ -72,8 +68,12 @@ public class ImportScanner
     private final Object monitor = new Object();
     // Root package with "" as ident.
     private CompletableFuture<RootPackageInfo> root;
-    // The Reflections library we use to actually do the scanning:
-    private Reflections reflections;
+    // $1, etc classes -- they cannot be used directly, and asking about them causes errors:
+    private static final Pattern ANONYMOUS_CLASS = Pattern.compile(".*\\$\\d.*");
+    // The most types we will create on the FX thread in one go:
+    private static final int FX_BATCH_SIZE = 100;
+    // The class loader for all the scanned classes:
+    private ClassLoader classLoader;
     // The Project which we are scanning for:
     private Project project;
 
@@ -119,40 +119,76 @@ public class ImportScanner
         }
 
         /**
-         * Gets the type for the given name from this package, either using cached copy
-         * or by calculating it on demand.
+         * Gets the types for the given names from this package, either using cached copies
+         * or by calculating them on demand.  Names which are not found are left out.
          * 
          * @param prefix The package name, ending in ".", e.g. "java.lang."
-         * @param name The unqualified type name, e.g. "String".
+         * @param names The unqualified type names, e.g. "String".
          */
         @OnThread(Tag.Worker)
-        private AssistContentThreadSafe getType(String prefix, String name, JavadocResolver javadocResolver)
+        private synchronized List<AssistContentThreadSafe> getTypes(String prefix, Collection<String> names, JavadocResolver javadocResolver)
         {
-            return types.computeIfAbsent(name, s -> {
-                // To safely get an AssistContentThreadSafe, we must create one from the FXPlatform thread.
-                // So we need to hop across to the FXPlatform thread.  Because we are an arbitrary background
-                // worker thread, it is safe to use wait afterwards; without risk of deadlock:
+            // Loading the classes and reading their details can be done on this thread:
+            List<String> newNames = new ArrayList<>();
+            List<ImportedTypeCompletion> newTypes = new ArrayList<>();
+            for (String name : names)
+            {
+                if (types.get(name) != null)
+                    continue;
                 try
                 {
-                    Class<?> c = reflections.typeNameToClass(prefix + s);
-                    CompletableFuture<AssistContentThreadSafe> f = new CompletableFuture<>();
-                    Platform.runLater(() -> f.complete(new AssistContentThreadSafe(new ImportedTypeCompletion(c, javadocResolver))));
-                    return f.get();
+                    Class<?> c = classLoader.loadClass(prefix + name);
+                    newNames.add(name);
+                    newTypes.add(new ImportedTypeCompletion(c, javadocResolver));
                 }
-                catch (ReflectionsException e)
+                catch (ClassNotFoundException | LinkageError e)
                 {
                     // Don't report this one; it happens frequently, for example
                     // when the user is typing in an import in a Stride import frame.
                     // We check j, ja, jav, ... java.ut, java.uti, etc.
                     // No need to report an exception for every bad import
-                    return null;
                 }
                 catch (Exception e)
                 {
                     Debug.reportError(e);
-                    return null;
                 }
-            });
+            }
+
+            // To safely get an AssistContentThreadSafe (which includes the javadoc), we must create
+            // one from the FXPlatform thread.  So we need to hop across to the FXPlatform thread.
+            // We do this for many types at once, rather than one at a time, but in limited batches
+            // so that the FXPlatform thread isn't held up for too long.  Because we are an arbitrary
+            // background worker thread, it is safe to wait afterwards; without risk of deadlock:
+            for (int start = 0; start < newTypes.size(); start += FX_BATCH_SIZE)
+            {
+                List<ImportedTypeCompletion> batch = newTypes.subList(start, Math.min(start + FX_BATCH_SIZE, newTypes.size()));
+                CompletableFuture<List<AssistContentThreadSafe>> f = new CompletableFuture<>();
+                Platform.runLater(() -> {
+                    try
+                    {
+                        f.complete(Utility.mapList(batch, AssistContentThreadSafe::new));
+                    }
+                    catch (Throwable t)
+                    {
+                        f.completeExceptionally(t);
+                    }
+                });
+                try
+                {
+                    List<AssistContentThreadSafe> copied = f.get();
+                    for (int i = 0; i < copied.size(); i++)
+                    {
+                        types.put(newNames.get(start + i), copied.get(i));
+                    }
+                }
+                catch (InterruptedException | ExecutionException e)
+                {
+                    Debug.reportError(e);
+                    break;
+                }
+            }
+
+            return names.stream().map(types::get).filter(ac -> ac != null).collect(Collectors.toList());
         }
 
         /**
@@ -177,9 +213,13 @@ public class ImportScanner
             {
                 // Return all types:
 
-                // Take a copy in case it causes problems that getType modifies the collection
-                Collection<String> typeNames = new ArrayList<>(types.keySet());
-                return typeNames.stream().map(t -> getType(prefix, t, javadocResolver)).filter(ac -> ac != null).collect(Collectors.toList());
+                // Take a copy in case it causes problems that getTypes modifies the collection
+                Collection<String> typeNames;
+                synchronized (this)
+                {
+                    typeNames = new ArrayList<>(types.keySet());
+                }
+                return getTypes(prefix, typeNames, javadocResolver);
             }
             else if (idents.hasNext())
             {
@@ -192,11 +232,7 @@ public class ImportScanner
             else
             {
                 // Final identifier, not an asterisk, look for class:
-                AssistContentThreadSafe ac = getType(prefix, s, javadocResolver);
-                if (ac != null)
-                    return Collections.singletonList(ac);
-                else
-                    return Collections.emptyList();
+                return getTypes(prefix, Collections.singletonList(s), javadocResolver);
             }
         }
 
@@ -279,9 +315,9 @@ public class ImportScanner
         }
     }
     
-    // Gets the class loader config to pass to the Reflections library
+    // Gets the URLs of all the jars and directories to scan
     @OnThread(Tag.Unique)
-    private ConfigurationBuilder getClassloaderConfig()
+    private Set<URL> getClasspathURLs()
     {
         List<ClassLoader> classLoadersList = new ArrayList<ClassLoader>();
         classLoadersList.add(ClasspathHelper.contextClassLoader());
@@ -329,60 +365,22 @@ public class ImportScanner
         //Debug.message("Class loader URLs:");
         //urls.stream().sorted(Comparator.comparing(URL::toString)).forEach(u -> Debug.message("  " + u));
 
-        ClassLoader cl = new URLClassLoader(urls.toArray(new URL[0]));
-        
-        return new ConfigurationBuilder()
-            .setScanners(new SubTypesScanner(false /* don't exclude Object.class */))
-            .setUrls(urls)
-            .addClassLoader(cl)
-            .useParallelExecutor();
+        return urls;
     }
 
     /**
-     * Creates a Reflections instance ready to do import scanning.
-     * @param importSrcs Currently not used by caller, but narrows imports down
-     * @return
+     * Checks whether a class found on the classpath should be offered for import.
      */
-    @OnThread(Tag.Unique)
-    private Reflections getReflections(List<String> importSrcs)
+    @OnThread(Tag.Any)
+    private static boolean isImportable(String className)
     {
-        FilterBuilder filter = new FilterBuilder();
-        
-        for (String importSrc : importSrcs)
-        {
-            if (importSrc.endsWith(".*"))
-            {
-                // Chop off star but keep the dot, then escape dots:
-                String importSrcRegex = importSrc.substring(0, importSrc.length() - 1).replace(".","\\.");
-                filter = filter.include(importSrcRegex + ".*"); 
-            }
-            else
-            {
-                // Look for that exactly.  It seems we need .* because I think the library
-                // uses the same filter to match files as classes, so an exact match will miss the class file:
-                filter = filter.include(importSrc.replace(".", "\\.") + ".*");
-            }
-        }
-        // Exclude $1, etc classes -- they cannot be used directly, and asking about them causes errors:
-        filter = filter.exclude(".*\\$\\d.*");
-        filter = filter.exclude("com\\.sun\\..*");
-        
-        try
-        {
-            return new Reflections(getClassloaderConfig()
-                .filterInputsBy(filter)
-                );
-        }
-        catch (Throwable e)
-        {
-            Debug.reportError(e);
-            return null;
-        }
+        return !className.startsWith("com.sun.") && !ANONYMOUS_CLASS.matcher(className).matches();
     }
 
     /**
      * Gets a package-tree structure which includes all packages and class-names
-     * on the current class-path (by scanning all JARs and class-files on the path).
+     * on the current class-path (from the class index for JARs, and by scanning
+     * class-files in directories on the path).
      *
      * @return A package-tree structure with all class names present, but not any further
      * details about the classes.
@@ -390,27 +388,35 @@ public class ImportScanner
     @OnThread(Tag.Unique)
     private RootPackageInfo findAllTypes()
     {
-        reflections = getReflections(Collections.emptyList());
-        
-        if (reflections == null)
-            return new RootPackageInfo();
-        
-        Set<String> classes;
-        try
-        {
-            classes = reflections.getSubTypeNamesOf(Object.class);
-        }
-        catch (Throwable t)
+        Set<URL> urls = getClasspathURLs();
+        classLoader = new URLClassLoader(urls.toArray(new URL[0]));
+
+        RootPackageInfo r = new RootPackageInfo();
+        // The class names for jars come from the class index, which only
+        // needs to read a jar if it is new or has changed:
+        ClassIndex index = ClassIndex.getInstance();
+        for (URL url : urls)
         {
-            Debug.reportError(t);
-            classes = new HashSet<>();
+            if (!"file".equals(url.getProtocol()))
+                continue;
+            try
+            {
+                for (String c : index.getClassNames(new File(url.toURI())))
+                {
+                    if (isImportable(c))
+                        r.addClass(c);
+                }
+            }
+            catch (URISyntaxException | IllegalArgumentException e)
+            {
+                Debug.reportError(e);
+            }
         }
+        index.removeMissing();
+        index.save();
         
-        // Also add Object itself, not found by default:
-        classes.add(Object.class.getName());
-
-        RootPackageInfo r = new RootPackageInfo();
-        classes.forEach(c -> r.addClass(c));
+        // Make sure Object is present, even if we couldn't find rt.jar:
+        r.addClass(Object.class.getName());
         return r;
     }
 
@@ -50,10 +50,51 @@ import threadchecker.Tag;
 /**
  * A reflective for GenTypeClass which uses the standard java reflection API.  
  * 
+ * <p>Building the generic member and supertype information for a class is expensive,
+ * and code completion asks for it repeatedly (usually for the same few library
+ * classes), so it is computed once per class and shared between all reflectives for
+ * that class. The cached information is released along with the class itself, so
+ * project classes are re-examined once their class loader has been replaced.
+ * Method reflectives can have javadoc and parameter names attached by whoever uses
+ * them, so callers always get their own copies of the cached methods.
+ * 
  * @author Davin McCall
  */
 public class JavaReflective extends Reflective
 {
+    private static final ClassValue<Map<String,FieldReflective>> declaredFields =
+            new ClassValue<Map<String,FieldReflective>>() {
+        @Override
+        @OnThread(value = Tag.FXPlatform, ignoreParent = true)
+        protected Map<String,FieldReflective> computeValue(Class<?> type)
+        {
+            return Collections.unmodifiableMap(new JavaReflective(type).findDeclaredFields());
+        }
+    };
+
+    private static final ClassValue<Map<String,Set<MethodReflective>>> declaredMethods =
+            new ClassValue<Map<String,Set<MethodReflective>>>() {
+        @Override
+        @OnThread(value = Tag.FXPlatform, ignoreParent = true)
+        protected Map<String,Set<MethodReflective>> computeValue(Class<?> type)
+        {
+            Map<String,Set<MethodReflective>> methods = new JavaReflective(type).findDeclaredMethods();
+            for (Map.Entry<String,Set<MethodReflective>> entry : methods.entrySet()) {
+                entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(methods);
+        }
+    };
+
+    private static final ClassValue<List<GenTypeClass>> superTypes = new ClassValue<List<GenTypeClass>>() {
+        @Override
+        @OnThread(value = Tag.FXPlatform, ignoreParent = true)
+        protected List<GenTypeClass> computeValue(Class<?> type)
+        {
+            return Collections.unmodifiableList(new JavaReflective(type).findSuperTypes());
+        }
+    };
+
     private Class<?> c;
     
     @Override
@@ -192,6 +233,12 @@ public class JavaReflective extends Reflective
 
     @Override
     public List<GenTypeClass> getSuperTypes()
+    {
+        // Callers may modify the list, so give them a copy:
+        return new ArrayList<GenTypeClass>(superTypes.get(c));
+    }
+
+    private List<GenTypeClass> findSuperTypes()
     {
         List<GenTypeClass> l = new ArrayList<GenTypeClass>();
 
@@ -257,6 +304,11 @@ public class JavaReflective extends Reflective
     
     @Override
     public Map<String,FieldReflective> getDeclaredFields()
+    {
+        return declaredFields.get(c);
+    }
+
+    private Map<String,FieldReflective> findDeclaredFields()
     {
         try {
             Field [] fields = c.getDeclaredFields();
@@ -288,6 +340,21 @@ public class JavaReflective extends Reflective
     
     @Override
     public Map<String,Set<MethodReflective>> getDeclaredMethods()
+    {
+        Map<String,Set<MethodReflective>> cached = declaredMethods.get(c);
+        Map<String,Set<MethodReflective>> rmap = new HashMap<String,Set<MethodReflective>>(cached.size() * 2);
+        for (Map.Entry<String,Set<MethodReflective>> entry : cached.entrySet()) {
+            Set<MethodReflective> rset = new HashSet<MethodReflective>(entry.getValue().size() * 2);
+            for (MethodReflective mr : entry.getValue()) {
+                rset.add(new MethodReflective(mr.getName(), mr.getReturnType(), mr.getTparTypes(),
+                        mr.getParamTypes(), mr.getDeclaringType(), mr.isVarArgs(), mr.getModifiers()));
+            }
+            rmap.put(entry.getKey(), rset);
+        }
+        return rmap;
+    }
+
+    private Map<String,Set<MethodReflective>> findDeclaredMethods()
     {
         try {
             Method [] methods = c.getDeclaredMethods();
@@ -33,7 +33,6 @@ import java.util.Arrays;
 import java.util.Collection;
 
 import junit.framework.TestCase;
-import difflib.DiffUtils;
 import difflib.Patch;
 
 public class TestDiff extends TestCase
@@ -54,7 +53,7 @@ public class TestDiff extends TestCase
     private void assertDiffRoundTrip(String[] orig, String[] mod) throws IOException, InterruptedException
     {
         // Get the diff using our library:
-        Patch patch = DiffUtils.diff(Arrays.asList(orig), Arrays.asList(mod));
+        Patch patch = DataCollectorImpl.diff(Arrays.asList(orig), Arrays.asList(mod));
         String diff = DataCollectorImpl.makeDiff(patch);
         // Now send it on a round trip with the system diff.
         
@@ -117,6 +116,33 @@ public class TestDiff extends TestCase
 "}"});
     }
     
+    public void testChangeInMiddle() throws IOException, InterruptedException
+    {
+        assertDiffRoundTrip(new String[] {
+"class Foo",
+"{",
+"  public int x;",
+"  public int y;",
+"}"}, new String[] {
+"class Foo",
+"{",
+"  public int x;",
+"  private int z;",
+"  private int y;",
+"}"});
+    }
+    
+    public void testEditsAtEnds() throws IOException, InterruptedException
+    {
+        assertDiffRoundTrip(new String[] {
+"class Foo",
+"{",
+"}"}, new String[] {
+"import java.util.List;",
+"class Foo",
+"{"});
+    }
+    
     // This test can take a little while -- 75 seconds on my machine
     /*
     public void testBruteForceDiffs() throws IOException, InterruptedException
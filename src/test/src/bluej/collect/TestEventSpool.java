@@ -0,0 +1,167 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2016  Michael Kolling and John Rosenberg 
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.collect;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TestEventSpool extends TestCase
+{
+    private File dir;
+
+    /**
+     * A transport which records what it was sent, and can be told to fail.
+     */
+    private static class StubTransport implements EventTransport
+    {
+        private final List<String> received = new ArrayList<>();
+        private boolean networkDown;
+        private String reject;
+
+        @Override
+        public boolean send(byte[] body, String contentType) throws IOException
+        {
+            if (networkDown) {
+                throw new IOException("Network down");
+            }
+            String content = contentType + ":" + new String(body, StandardCharsets.UTF_8);
+            received.add(content);
+            return !content.equals(reject);
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        dir = File.createTempFile("spool", "");
+        dir.delete();
+        dir.mkdir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    private static void add(EventSpool spool, String body)
+    {
+        spool.add(body.getBytes(StandardCharsets.UTF_8), "text/plain");
+    }
+
+    public void testSendInOrder()
+    {
+        EventSpool spool = new EventSpool(dir);
+        add(spool, "one");
+        add(spool, "two");
+        add(spool, "three");
+
+        StubTransport transport = new StubTransport();
+        assertEquals(EventSpool.SendResult.SENT, spool.sendAll(transport));
+        assertEquals(3, transport.received.size());
+        assertEquals("text/plain:one", transport.received.get(0));
+        assertEquals("text/plain:three", transport.received.get(2));
+        assertEquals(0, spool.size());
+        spool.close();
+    }
+
+    public void testFailedEventsKept()
+    {
+        EventSpool spool = new EventSpool(dir);
+        add(spool, "one");
+        add(spool, "two");
+
+        StubTransport transport = new StubTransport();
+        transport.networkDown = true;
+        assertEquals(EventSpool.SendResult.UNREACHABLE, spool.sendAll(transport));
+        assertEquals(2, spool.size());
+
+        transport.networkDown = false;
+        assertEquals(EventSpool.SendResult.SENT, spool.sendAll(transport));
+        assertEquals(2, transport.received.size());
+        spool.close();
+    }
+
+    public void testRejectedEventDropped()
+    {
+        EventSpool spool = new EventSpool(dir);
+        add(spool, "one");
+        add(spool, "two");
+
+        StubTransport transport = new StubTransport();
+        transport.reject = "text/plain:one";
+        assertEquals(EventSpool.SendResult.REJECTED, spool.sendAll(transport));
+        assertEquals(1, spool.size());
+        assertEquals(EventSpool.SendResult.SENT, spool.sendAll(transport));
+        assertEquals("text/plain:two", transport.received.get(1));
+        spool.close();
+    }
+
+    public void testSurvivesRestart()
+    {
+        EventSpool spool = new EventSpool(dir);
+        add(spool, "one");
+        add(spool, "two");
+        // Release the lock, as if the first session had ended:
+        spool.close();
+
+        EventSpool reopened = new EventSpool(dir);
+        assertEquals(2, reopened.size());
+        add(reopened, "three");
+
+        StubTransport transport = new StubTransport();
+        assertEquals(EventSpool.SendResult.SENT, reopened.sendAll(transport));
+        assertEquals("text/plain:one", transport.received.get(0));
+        assertEquals("text/plain:two", transport.received.get(1));
+        assertEquals("text/plain:three", transport.received.get(2));
+        reopened.close();
+
+        EventSpool emptied = new EventSpool(dir);
+        assertEquals(0, emptied.size());
+        emptied.close();
+    }
+
+    public void testSecondUserKeepsToMemory()
+    {
+        EventSpool first = new EventSpool(dir);
+        add(first, "one");
+
+        EventSpool second = new EventSpool(dir);
+        assertEquals(0, second.size());
+        add(second, "two");
+        assertEquals(1, second.size());
+        first.close();
+
+        // Only the first spool's event was written to disk:
+        EventSpool reopened = new EventSpool(dir);
+        assertEquals(1, reopened.size());
+        reopened.close();
+    }
+}
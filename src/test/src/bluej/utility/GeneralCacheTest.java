@@ -0,0 +1,67 @@
+package bluej.utility;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GeneralCacheTest
+{
+    @Test
+    public void testLeastRecentlyUsedRemoved()
+    {
+        GeneralCache<String,Integer> cache = new GeneralCache<>(3);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+
+        // Using "a" makes "b" the least recently used:
+        Assert.assertEquals(Integer.valueOf(1), cache.get("a"));
+        cache.put("d", 4);
+
+        Assert.assertEquals(3, cache.size());
+        Assert.assertTrue(cache.containsKey("a"));
+        Assert.assertFalse(cache.containsKey("b"));
+        Assert.assertTrue(cache.containsKey("c"));
+        Assert.assertTrue(cache.containsKey("d"));
+        Assert.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testWeightLimit()
+    {
+        GeneralCache<String,String> cache = new GeneralCache<>(100, 10, String::length);
+        cache.put("a", "1234");
+        cache.put("b", "1234");
+        Assert.assertEquals(8, cache.getTotalWeight());
+
+        cache.put("c", "1234");
+        Assert.assertFalse(cache.containsKey("a"));
+        Assert.assertEquals(8, cache.getTotalWeight());
+
+        // Replacing a value replaces its weight:
+        cache.put("c", "12");
+        Assert.assertEquals(6, cache.getTotalWeight());
+
+        // An entry heavier than the limit is still kept, but on its own:
+        cache.put("d", "123456789012");
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals("123456789012", cache.get("d"));
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getTotalWeight());
+    }
+
+    @Test
+    public void testCounters()
+    {
+        GeneralCache<String,Integer> cache = new GeneralCache<>(2);
+        cache.put("a", 1);
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(0, cache.getEvictionCount());
+    }
+}